@@ -26,6 +26,7 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StatisticsCache;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
@@ -45,6 +46,7 @@ public class AuthorController {
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
     private final BookViewMapper bookViewMapper;
+    private final StatisticsCache statisticsCache;
 
 
     //Create
@@ -145,7 +147,7 @@ public class AuthorController {
     @Operation(summary = "Know the Top 5 authors which have the most lent books")
     @GetMapping("/top5")
     public ListResponse<AuthorLendingView> getTop5() {
-        final var list = authorService.findTopAuthorByLendings();
+        final var list = statisticsCache.get("authors.top5", List.of(), authorService::findTopAuthorByLendings);
 
         if(list.isEmpty())
             throw new NotFoundException("No authors to show");
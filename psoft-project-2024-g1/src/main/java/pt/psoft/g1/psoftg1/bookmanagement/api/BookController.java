@@ -1,6 +1,7 @@
 package pt.psoft.g1.psoftg1.bookmanagement.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
@@ -15,8 +16,10 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookService;
 import pt.psoft.g1.psoftg1.bookmanagement.services.CreateBookRequest;
+import pt.psoft.g1.psoftg1.bookmanagement.services.LendingPeriod;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.bookmanagement.services.UpdateBookRequest;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
@@ -24,18 +27,18 @@ import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.shared.api.CountedListResponse;
+import pt.psoft.g1.psoftg1.shared.api.CursorListResponse;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StatisticsCache;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
 
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Tag(name = "Books", description = "Endpoints for managing Books")
 @RestController
@@ -50,6 +53,7 @@ public class BookController {
     private final ReaderService readerService;
 
     private final BookViewMapper bookViewMapper;
+    private final StatisticsCache statisticsCache;
 
     @Operation(summary = "Register a new Book")
     @PutMapping(value = "/{isbn}")
@@ -168,49 +172,49 @@ public class BookController {
                 .body(bookViewMapper.toBookView(book));
     }
 
-    @Operation(summary = "Gets Books by title or genre")
+    @Operation(summary = "Gets Books by title, genre or author name, by title",
+            description = "Each criterion matches the books with words starting with its words, ignoring case and accents, "
+                    + "so \"hob\" finds \"O Hobbit\" but \"obbit\" does not. "
+                    + "Words of less than " + BookSearchIndex.MIN_PREFIX_LENGTH + " letters only match whole words.")
     @GetMapping
-    public ListResponse<BookView> findBooks(@RequestParam(value = "title", required = false) final String title,
-                                            @RequestParam(value = "genre", required = false) final String genre,
-                                            @RequestParam(value = "authorName", required = false) final String authorName) {
-
-        //Este método, como está, faz uma junção 'OR'.
+    public CursorListResponse<BookView> findBooks(@RequestParam(value = "title", required = false) final String title,
+                                                  @RequestParam(value = "genre", required = false) final String genre,
+                                                  @RequestParam(value = "authorName", required = false) final String authorName,
+                                                  @RequestParam(value = "cursor", required = false)
+                                                      @Parameter(description = "The token returned with the previous slice")
+                                                      final String cursor,
+                                                  @RequestParam(value = "limit", defaultValue = "10")
+                                                      @Parameter(description = "The maximum number of books to return")
+                                                      final int limit) {
+
+        //Este método faz uma junção 'OR'.
         //Para uma junção 'AND', ver o "/search"
+        final CursorPage<Book> books = bookService.searchAnyBooks(new SearchBooksQuery(title, genre, authorName), cursor, limit);
 
-        List<Book> booksByTitle = null;
-        if (title != null)
-            booksByTitle = bookService.findByTitle(title);
-
-        List<Book> booksByGenre = null;
-        if (genre != null)
-            booksByGenre = bookService.findByGenre(genre);
-
-        List<Book> booksByAuthorName = null;
-        if (authorName != null)
-            booksByAuthorName = bookService.findByAuthorName(authorName);
-
-        Set<Book> bookSet = new HashSet<>();
-        if (booksByTitle!= null)
-            bookSet.addAll(booksByTitle);
-        if(booksByGenre != null)
-            bookSet.addAll(booksByGenre);
-        if(booksByAuthorName != null)
-            bookSet.addAll(booksByAuthorName);
-
-        List<Book> books = bookSet.stream()
-                .sorted(Comparator.comparing(b -> b.getTitle().toString()))
-                .collect(Collectors.toList());
-
-        if(books.isEmpty())
+        if(books.getItems().isEmpty() && cursor == null)
             throw new NotFoundException("No books found with the provided criteria");
 
-        return new ListResponse<>(bookViewMapper.toBookView(books));
+        return new CursorListResponse<>(bookViewMapper.toBookView(books.getItems()), books.getNext());
     }
 
     @Operation(summary = "Gets the top 5 books lent")
     @GetMapping("top5")
     public ListResponse<BookCountView> getTop5BooksLent() {
-        return new ListResponse<>(bookViewMapper.toBookCountView(bookService.findTop5BooksLent()));
+        return new ListResponse<>(statisticsCache.get("books.top5", List.of(),
+                () -> bookViewMapper.toBookCountView(bookService.findTop5BooksLent())));
+    }
+
+    @Operation(summary = "Gets the books most lent in the last week, month or year")
+    @GetMapping("top")
+    public ListResponse<BookCountView> getTopBooksLent(@RequestParam(value = "period", defaultValue = "year")
+                                                       @Parameter(description = "week, month or year")
+                                                       final String period,
+                                                       @RequestParam(value = "limit", defaultValue = "5")
+                                                       @Parameter(description = "The maximum number of books to return")
+                                                       final int limit) {
+        final LendingPeriod lendingPeriod = LendingPeriod.fromString(period);
+        return new ListResponse<>(statisticsCache.get("books.top", List.of(lendingPeriod, limit),
+                () -> bookViewMapper.toBookCountView(bookService.findTopBooksLent(limit, lendingPeriod))));
     }
 
     @Operation(summary = "Gets some books suggestions based on the reader's interests")
@@ -233,11 +237,13 @@ public class BookController {
         return ResponseEntity.ok().body(bookViewMapper.toBookAverageLendingDurationView(book, avgDuration));
     }
 
+    @Operation(summary = "Searches Books by every criterion, most relevant first",
+            description = "Criteria match words as in GET /api/books. Pages reach the first results only, see bookSearchMaxResults.")
     @PostMapping("/search")
-    public ListResponse<BookView> searchBooks(
-            @RequestBody final SearchRequest<SearchBooksQuery> request) {
-        final var bookList = bookService.searchBooks(request.getPage(), request.getQuery());
-        return new ListResponse<>(bookViewMapper.toBookView(bookList));
+    public CountedListResponse<BookView> searchBooks(
+            @Valid @RequestBody final SearchRequest<SearchBooksQuery> request) {
+        final var books = bookService.searchBooks(request.getPage(), request.getQuery());
+        return new CountedListResponse<>(bookViewMapper.toBookView(books.getItems()), books.getTotal());
     }
 }
 
@@ -1,29 +1,19 @@
 package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.impl;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.*;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
-import org.springframework.util.StringUtils;
-import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
-import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchFact;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
-import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
-import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface SpringDataBookRepository  extends BookRepository, BookRepoCustom, CrudRepository<Book, Isbn> {
+public interface SpringDataBookRepository  extends BookRepository, CrudRepository<Book, Isbn> {
 
     @Query("SELECT b " +
             "FROM Book b " +
@@ -31,13 +21,20 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
     @Override
-    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO(b, COUNT(l)) " +
-                "FROM Book b " +
-                "JOIN Lending l ON l.book = b " +
-                "WHERE l.startDate > :oneYearAgo " +
-                "GROUP BY b " +
-                "ORDER BY COUNT(l) DESC")
-    Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
+    @Query("SELECT b " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<Book> findByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    @Override
+    @Query("SELECT DISTINCT b " +
+            "FROM Book b " +
+            "JOIN FETCH b.genre " +
+            "LEFT JOIN FETCH b.photo " +
+            "LEFT JOIN FETCH b.authors a " +
+            "LEFT JOIN FETCH a.photo " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<Book> findWithDetailsByIsbnIn(@Param("isbns") Collection<String> isbns);
 
 
     @Override
@@ -70,52 +67,13 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
             , nativeQuery = true)
     List<Book> findBooksByAuthorNumber(Long authorNumber);
 
-}
-
-
-interface BookRepoCustom {
-    List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
-
-}
-
-@RequiredArgsConstructor
-class BookRepoCustomImpl implements BookRepoCustom {
-    // get the underlying JPA Entity Manager via spring thru constructor dependency
-    // injection
-    private final EntityManager em;
-
     @Override
-    public List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query)
-    {
-        String title = query.getTitle();
-        String genre = query.getGenre();
-        String authorName = query.getAuthorName();
-
-        final CriteriaBuilder cb = em.getCriteriaBuilder();
-        final CriteriaQuery<Book> cq = cb.createQuery(Book.class);
-        final Root<Book> root = cq.from(Book.class);
-        final Join<Book, Genre> genreJoin = root.join("genre");
-        final Join<Book, Author> authorJoin = root.join("authors");
-        cq.select(root);
-
-        final List<Predicate> where = new ArrayList<>();
-
-        if (StringUtils.hasText(title))
-            where.add(cb.like(root.get("title").get("title"), title + "%"));
-
-        if (StringUtils.hasText(genre))
-            where.add(cb.like(genreJoin.get("genre"), genre + "%"));
-
-        if (StringUtils.hasText(authorName))
-            where.add(cb.like(authorJoin.get("name").get("name"), authorName + "%"));
-
-        cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(root.get("title"))); // Order by title, alphabetically
-
-        final TypedQuery<Book> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
-        q.setMaxResults(page.getLimit());
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchFact(" +
+                "b.isbn.isbn, b.title.title, b.description.description, g.genre, a.authorNumber, a.name.name) " +
+            "FROM Book b " +
+            "JOIN b.genre g " +
+            "LEFT JOIN b.authors a " +
+            "ORDER BY b.pk")
+    Stream<BookSearchFact> streamSearchFacts();
 
-        return q.getResultList();
-    }
 }
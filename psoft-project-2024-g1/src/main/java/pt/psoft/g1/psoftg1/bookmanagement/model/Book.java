@@ -60,7 +60,7 @@ public class Book extends EntityWithPhoto {
 
     private void setAuthors(List<Author> authors) {this.authors = authors; }
 
-    public String getDescription(){ return this.description.toString(); }
+    public String getDescription(){ return this.description == null ? null : this.description.toString(); }
 
     public Book(String isbn, String title, String description, Genre genre, List<Author> authors, String photoURI) {
         setTitle(title);
@@ -121,6 +121,26 @@ public class Book extends EntityWithPhoto {
 
     }
 
+    /**
+     * Current values of the fields that {@link #applyPatch(Long, UpdateBookRequest)} would write for {@code request}.
+     * @param   request     the patch to apply.
+     * @return  the values, in a fixed order, to compare with those of another version of this book.
+     * */
+    public List<Object> valuesPatchedBy(UpdateBookRequest request) {
+        final List<Object> values = new ArrayList<>();
+        if(request.getTitle() != null)
+            values.add(String.valueOf(title));
+        if(request.getDescription() != null)
+            values.add(String.valueOf(description));
+        if(request.getGenreObj() != null)
+            values.add(String.valueOf(genre));
+        if(request.getAuthorObjList() != null)
+            values.add(authors.stream().map(Author::getId).toList());
+        if(request.getPhotoURI() != null)
+            values.add(photo == null ? null : photo.getPhotoFile());
+        return values;
+    }
+
     public String getIsbn(){
         return this.isbn.toString();
     }
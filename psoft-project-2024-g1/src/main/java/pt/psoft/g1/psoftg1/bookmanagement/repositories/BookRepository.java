@@ -1,15 +1,13 @@
 package pt.psoft.g1.psoftg1.bookmanagement.repositories;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
-import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
-import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchFact;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 /**
@@ -22,10 +20,18 @@ public interface BookRepository {
     List<Book> findByTitle(@Param("title") String title);
     List<Book> findByAuthorName(@Param("authorName") String authorName);
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
-    Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
+    List<Book> findByIsbnIn(@Param("isbns") Collection<String> isbns);
+    /**
+     * Same as {@link #findByIsbnIn(Collection)}, with the genre, photo, authors and their photos of the books
+     * fetched in the same query, so books can be shown without further queries.
+     */
+    List<Book> findWithDetailsByIsbnIn(@Param("isbns") Collection<String> isbns);
     List<Book> findBooksByAuthorNumber(Long authorNumber);
 
-    List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+    /**
+     * @return the values of every book that are searched, one row per book and author, the rows of a book together
+     */
+    Stream<BookSearchFact> streamSearchFacts();
 
     Book save(Book book);
     void delete(Book book);
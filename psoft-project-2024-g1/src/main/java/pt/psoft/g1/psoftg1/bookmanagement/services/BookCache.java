@@ -0,0 +1,163 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+import java.util.*;
+
+/**
+ * Read-through cache of the books by ISBN, for the lookups that only show or reference a book.
+ * <p>
+ * A book is loaded with its genre, photo and authors, and kept detached, so it can be shown without a session.
+ * Kept books are shared and must not be changed: updates load the book they change from the repository.
+ * Books are only kept when loaded outside of a transaction, so a book that is not committed is never kept.
+ * <p>
+ * Up to {@code bookCacheMaxEntries} books are kept, the least recently used being evicted first.
+ * A book is evicted once a change to it, or to one of its authors, commits, see {@link BookChangeListener}.
+ * The committed version of the last {@code bookCacheMaxEntries} changed books is remembered, so a lookup that loaded
+ * an older version before the change committed does not put it back. A lookup that started before a change whose
+ * version is no longer remembered, or before an author change, which does not change the version of its books,
+ * is not kept, as it cannot be told apart from a stale one.
+ * <p>
+ * Lookups are counted in the {@code cache.gets} metric, tagged with the result, evictions in {@code cache.evictions},
+ * tagged with their cause, and the number of books kept is the {@code cache.size} gauge, all tagged {@code cache=books}.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class BookCache {
+    private static final String CACHE = "books";
+
+    private final BookRepository bookRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bookCacheMaxEntries}")
+    private int maxEntries;
+
+    // access order, so the eldest book is the least recently used
+    private final LinkedHashMap<String, Book> books = new LinkedHashMap<>(16, 0.75f, true);
+    // lowest version of each recently changed book that can be kept, in order of change
+    private final LinkedHashMap<String, VersionFloor> minVersions = new LinkedHashMap<>();
+    // number of changes so far, and the number before which lookups are not kept
+    private long changes;
+    private long unknownBefore;
+
+    @PostConstruct
+    void registerSize() {
+        Gauge.builder("cache.size", this, BookCache::size).tag("cache", CACHE).register(meterRegistry);
+    }
+
+    /**
+     * @param isbn - ISBN of the book
+     * @return the kept book, or the book loaded from the repository
+     */
+    public Optional<Book> findByIsbn(String isbn) {
+        final long changesBefore;
+        synchronized (this) {
+            final Book book = books.get(isbn);
+            if (book != null) {
+                count("hit");
+                return Optional.of(book);
+            }
+            changesBefore = changes;
+        }
+        count("miss");
+
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            return bookRepository.findByIsbn(isbn);
+        final Optional<Book> book = bookRepository.findWithDetailsByIsbnIn(List.of(isbn)).stream().findFirst();
+        book.ifPresent(b -> put(b, changesBefore));
+        return book;
+    }
+
+    /**
+     * @return number of books kept
+     */
+    public synchronized int size() {
+        return books.size();
+    }
+
+    /**
+     * Evicts a book that was saved, keeping only its versions from {@code version} on.
+     */
+    synchronized void bookChanged(String isbn, long version) {
+        if (books.remove(isbn) != null)
+            evicted("change");
+        minVersions.remove(isbn);
+        minVersions.put(isbn, new VersionFloor(version, ++changes));
+        final Iterator<VersionFloor> it = minVersions.values().iterator();
+        while (minVersions.size() > maxEntries && it.hasNext()) {
+            // lookups that started before this change may have loaded the version it replaced
+            unknownBefore = Math.max(unknownBefore, it.next().change);
+            it.remove();
+        }
+    }
+
+    /**
+     * Evicts a book that was deleted, keeping none of its versions until a book with its ISBN is saved again.
+     */
+    void bookDeleted(String isbn) {
+        bookChanged(isbn, Long.MAX_VALUE);
+    }
+
+    /**
+     * Evicts the books of an author that was saved, as they show its name.
+     */
+    synchronized void authorChanged(Long authorNumber) {
+        unknownBefore = ++changes;
+        final Iterator<Book> it = books.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getAuthors().stream().map(Author::getAuthorNumber).anyMatch(authorNumber::equals)) {
+                it.remove();
+                evicted("change");
+            }
+        }
+    }
+
+    private synchronized void put(Book book, long changesBefore) {
+        if (changesBefore < unknownBefore)
+            return;
+        final long version = book.getVersion();
+        final VersionFloor minVersion = minVersions.get(book.getIsbn());
+        if (minVersion != null && version < minVersion.version)
+            return;
+        final Book kept = books.get(book.getIsbn());
+        if (kept != null && kept.getVersion() >= version)
+            return;
+
+        books.put(book.getIsbn(), book);
+        final Iterator<Book> it = books.values().iterator();
+        while (books.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evicted("size");
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("cache.gets", "cache", CACHE, "result", result).increment();
+    }
+
+    private void evicted(String cause) {
+        meterRegistry.counter("cache.evictions", "cache", CACHE, "cause", cause).increment();
+    }
+
+    private static final class VersionFloor {
+        private final long version;
+        private final long change;
+
+        private VersionFloor(long version, long change) {
+            this.version = version;
+            this.change = change;
+        }
+    }
+}
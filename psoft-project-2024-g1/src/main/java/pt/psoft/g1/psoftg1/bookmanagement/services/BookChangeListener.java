@@ -0,0 +1,102 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingColumnStore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link BookSearchIndex} and the {@link BookCache} up to date with the books and authors saved or deleted,
+ * and the {@link LendingColumnStore} with the genre of the books saved, once their transaction commits,
+ * so none ever has changes that are rolled back.
+ * <p>
+ * Collections that were not loaded are left as they are in the index, as they cannot have been changed.
+ */
+@Component
+@RequiredArgsConstructor
+class BookChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+    private final EntityManagerFactory entityManagerFactory;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCache bookCache;
+    private final LendingColumnStore lendingColumnStore;
+
+    @PostConstruct
+    void register() {
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Book book)
+            put(book);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Book book) {
+            put(book);
+        } else if (event.getEntity() instanceof Author author) {
+            bookSearchIndex.renameAuthor(author.getAuthorNumber(), author.getName());
+            bookCache.authorChanged(author.getAuthorNumber());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Book book) {
+            bookSearchIndex.remove(book.getIsbn());
+            bookCache.bookDeleted(book.getIsbn());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // nothing was indexed nor evicted
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // nothing was indexed nor evicted
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // nothing was indexed nor evicted
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    private void put(Book book) {
+        final String genre = Hibernate.isInitialized(book.getGenre()) ? book.getGenre().getGenre() : null;
+        Map<Long, String> authors = null;
+        if (Hibernate.isInitialized(book.getAuthors())) {
+            authors = new LinkedHashMap<>();
+            for (Author author : book.getAuthors()) {
+                authors.put(author.getAuthorNumber(), author.getName());
+            }
+        }
+        bookSearchIndex.put(book.getIsbn(), book.getTitle().getTitle(), book.getDescription(), genre, authors);
+        bookCache.bookChanged(book.getIsbn(), book.getVersion());
+        if (genre != null)
+            lendingColumnStore.changeGenre(book.getIsbn(), genre);
+    }
+}
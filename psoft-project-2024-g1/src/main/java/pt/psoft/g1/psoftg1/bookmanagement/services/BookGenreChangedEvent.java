@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.Getter;
+
+/**
+ * Published once the genre of a book was changed and saved.
+ */
+@Getter
+public class BookGenreChangedEvent {
+    private final String isbn;
+    private final String previousGenre;
+    private final String genre;
+
+    public BookGenreChangedEvent(String isbn, String previousGenre, String genre) {
+        this.isbn = isbn;
+        this.previousGenre = previousGenre;
+        this.genre = genre;
+    }
+}
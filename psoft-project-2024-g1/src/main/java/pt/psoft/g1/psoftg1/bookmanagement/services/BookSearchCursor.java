@@ -0,0 +1,40 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a {@code Book} in the results of a search, by (title, isbn),
+ * used to continue the results right after it.
+ * <p>It travels to clients as an opaque token, see {@link #encode()} and {@link #decode(String)}.
+ */
+@Getter
+@AllArgsConstructor
+public class BookSearchCursor {
+    private final String title;
+    private final String isbn;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((isbn + ":" + title).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token - value previously returned by {@link #encode()}
+     * @throws IllegalArgumentException if {@code token} is not a valid cursor
+     */
+    public static BookSearchCursor decode(String token) {
+        try {
+            // the title goes last, as it may have separators
+            final String[] key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 2);
+            if (key.length != 2)
+                throw new IllegalArgumentException("Invalid cursor");
+            return new BookSearchCursor(key[1], key[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.Getter;
+
+/**
+ * The values of a {@code Book} and one of its authors that the {@link BookSearchIndex} is built from,
+ * selected straight from the database, one row per book and author.
+ */
+@Getter
+public class BookSearchFact {
+    private final String isbn;
+    private final String title;
+    private final String description;
+    private final String genre;
+    private final Long authorNumber;
+    private final String authorName;
+
+    public BookSearchFact(String isbn, String title, String description, String genre, Long authorNumber, String authorName) {
+        this.isbn = isbn;
+        this.title = title;
+        this.description = description;
+        this.genre = genre;
+        this.authorNumber = authorNumber;
+        this.authorName = authorName;
+    }
+}
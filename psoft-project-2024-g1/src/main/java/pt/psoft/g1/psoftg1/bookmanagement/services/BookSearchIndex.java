@@ -0,0 +1,502 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.shared.services.CountedPage;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index of the books, from the words of their title, description, genre and author names
+ * to the books they appear in.
+ * <p>
+ * Words are folded to lower case without accents, so {@code "Informação"} is found by {@code "informacao"},
+ * and every word searched for matches the indexed words it is a prefix of, so {@code "hob"} finds {@code "O Hobbit"},
+ * while {@code "obbit"} does not. Words shorter than {@value #MIN_PREFIX_LENGTH} letters only match whole words,
+ * as they would be a prefix of much of the index. Books that match every criterion are
+ * ranked by relevance, a word found in the title counting more than in the authors, then in the genre, then in the
+ * description, and a whole word more than a prefix. Books equally relevant are ordered by title.
+ * Books that match any criterion are ordered by title, and found without ranking them, in memory that does not
+ * grow with the number of matches: a bit per indexed book and the books of the slice.
+ * <p>
+ * The index is loaded once the application is ready, and updated as books and authors are saved or deleted
+ * and their transaction commits, see {@link BookChangeListener}.
+ * <p>
+ * Numbered pages reach at most the first {@code bookSearchMaxResults} books, as every book before the page
+ * is ranked to find it.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class BookSearchIndex {
+    /** Length from which a word searched for matches the indexed words it is a prefix of. */
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    private static final int TITLE = 1;
+    private static final int AUTHORS = 2;
+    private static final int GENRE = 4;
+    private static final int DESCRIPTION = 8;
+    private static final int ALL_FIELDS = TITLE | AUTHORS | GENRE | DESCRIPTION;
+
+    private static final Comparator<Document> BY_TITLE = Comparator.<Document, String>comparing(document -> document.title)
+            .thenComparing(document -> document.isbn);
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${bookSearchMaxResults}")
+    private int maxResults;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // books are numbered in order of arrival, a removed book leaving a null behind
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final NavigableSet<Document> documentsByTitle = new TreeSet<>(BY_TITLE);
+    private final Map<Long, Set<Integer>> documentsByAuthor = new HashMap<>();
+    // each word, in order, with the fields it appears in for every book that has it
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+
+    /**
+     * Loads every book from the database, replacing the current contents.
+     * Searches wait for the load to finish, so they never see a partial index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documentIds.clear();
+            documentsByTitle.clear();
+            documentsByAuthor.clear();
+            postings.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<BookSearchFact> facts = bookRepository.streamSearchFacts()) {
+                    loadAll(facts.iterator());
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return a page of the ISBNs of the books that match every criterion of {@code query}, most relevant first,
+     * or of all books, by title, if it has none, with the number of books that match
+     * @throws IllegalArgumentException if the page does not start with page 1 and 1 record,
+     * or ends past the first {@code bookSearchMaxResults} books
+     */
+    public CountedPage<String> searchAll(SearchBooksQuery query, Page page) {
+        if (page == null)
+            page = new Page(1, 10);
+        if (page.getNumber() < 1)
+            throw new IllegalArgumentException("Paging must start with page 1");
+        if (page.getLimit() < 1)
+            throw new IllegalArgumentException("You can request minimum 1 records");
+        final long skip = (long) (page.getNumber() - 1) * page.getLimit();
+        if (skip + page.getLimit() > maxResults)
+            throw new IllegalArgumentException("Only the first " + maxResults + " books of a search can be paged");
+        lock.readLock().lock();
+        try {
+            final Map<Integer, Integer> scores = scores(query);
+            if (scores == null) {
+                // every book matches, so the page is read off the books by title
+                return new CountedPage<>(documentsByTitle.stream().skip(skip).limit(page.getLimit())
+                        .map(document -> document.isbn).toList(), documentsByTitle.size());
+            }
+            final List<Hit> hits = top(scores, (int) skip + page.getLimit());
+            return new CountedPage<>(hits.subList((int) Math.min(skip, hits.size()), hits.size()).stream()
+                    .map(hit -> hit.isbn).toList(), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param after - the last book of the previous slice, {@code null} for the first slice
+     * @param limit - maximum number of books in the slice
+     * @return ISBNs of the books that match any criterion of {@code query}, by title,
+     * or none if it has no criteria
+     */
+    public CursorPage<String> searchAny(SearchBooksQuery query, BookSearchCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            // one extra book tells if there is a next slice
+            final List<Document> found = firstByTitle(matchesOfAny(query),
+                    after == null ? null : new Document(after.getIsbn(), after.getTitle(), null, null, Map.of()), limit + 1);
+            if (found.size() <= limit)
+                return new CursorPage<>(found.stream().map(document -> document.isbn).toList(), null);
+            final Document last = found.get(limit - 1);
+            return new CursorPage<>(found.subList(0, limit).stream().map(document -> document.isbn).toList(),
+                    new BookSearchCursor(last.title, last.isbn).encode());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a book.
+     * @param genre   - name of the genre, {@code null} to keep the indexed one
+     * @param authors - names of the authors by author number, {@code null} to keep the indexed ones
+     */
+    void put(String isbn, String title, String description, String genre, Map<Long, String> authors) {
+        lock.writeLock().lock();
+        try {
+            final Integer id = documentIds.get(isbn);
+            final Document current = id == null ? null : documents.get(id);
+            final Map<Long, String> authorNames = authors != null ? authors
+                    : current != null ? current.authorNames : Map.of();
+            add(new Document(isbn, title, description,
+                    genre != null || current == null ? genre : current.genre, authorNames));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            final Integer id = documentIds.remove(isbn);
+            if (id != null)
+                unlink(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the name of an author in every book of theirs.
+     */
+    void renameAuthor(Long authorNumber, String name) {
+        lock.writeLock().lock();
+        try {
+            for (Integer id : List.copyOf(documentsByAuthor.getOrDefault(authorNumber, Set.of()))) {
+                final Document current = documents.get(id);
+                final Map<Long, String> authorNames = new LinkedHashMap<>(current.authorNames);
+                authorNames.put(authorNumber, name);
+                add(new Document(current.isbn, current.title, current.description, current.genre, authorNames));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> words(String text) {
+        if (text == null)
+            return List.of();
+        final String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        final Set<String> words = new LinkedHashSet<>();
+        for (String word : SEPARATORS.split(folded)) {
+            if (!word.isEmpty())
+                words.add(word);
+        }
+        return List.copyOf(words);
+    }
+
+    private void loadAll(Iterator<BookSearchFact> facts) {
+        BookSearchFact book = null;
+        Map<Long, String> authors = new LinkedHashMap<>();
+        while (facts.hasNext()) {
+            final BookSearchFact fact = facts.next();
+            if (book != null && !book.getIsbn().equals(fact.getIsbn())) {
+                add(new Document(book.getIsbn(), book.getTitle(), book.getDescription(), book.getGenre(), authors));
+                authors = new LinkedHashMap<>();
+            }
+            book = fact;
+            if (fact.getAuthorNumber() != null)
+                authors.put(fact.getAuthorNumber(), fact.getAuthorName());
+        }
+        if (book != null)
+            add(new Document(book.getIsbn(), book.getTitle(), book.getDescription(), book.getGenre(), authors));
+    }
+
+    private void add(Document document) {
+        Integer id = documentIds.get(document.isbn);
+        if (id == null) {
+            id = documents.size();
+            documents.add(null);
+            documentIds.put(document.isbn, id);
+        } else {
+            unlink(id);
+        }
+
+        documents.set(id, document);
+        documentsByTitle.add(document);
+        for (Map.Entry<String, Integer> word : document.fieldsByWord().entrySet()) {
+            postings.computeIfAbsent(word.getKey(), w -> new HashMap<>()).put(id, word.getValue());
+        }
+        for (Long authorNumber : document.authorNames.keySet()) {
+            documentsByAuthor.computeIfAbsent(authorNumber, a -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void unlink(int id) {
+        final Document document = documents.set(id, null);
+        if (document == null)
+            return;
+        documentsByTitle.remove(document);
+        for (String word : document.fieldsByWord().keySet()) {
+            final Map<Integer, Integer> books = postings.get(word);
+            books.remove(id);
+            if (books.isEmpty())
+                postings.remove(word);
+        }
+        for (Long authorNumber : document.authorNames.keySet()) {
+            final Set<Integer> books = documentsByAuthor.get(authorNumber);
+            books.remove(id);
+            if (books.isEmpty())
+                documentsByAuthor.remove(authorNumber);
+        }
+    }
+
+    /**
+     * @return the books that match every criterion of {@code query}, with their scores,
+     * or {@code null} if it has no criteria
+     */
+    private Map<Integer, Integer> scores(SearchBooksQuery query) {
+        if (query == null)
+            query = new SearchBooksQuery();
+
+        final List<Map<Integer, Integer>> criteria = new ArrayList<>();
+        addCriterion(criteria, query.getTitle(), TITLE);
+        addCriterion(criteria, query.getGenre(), GENRE);
+        addCriterion(criteria, query.getAuthorName(), AUTHORS);
+        addCriterion(criteria, query.getText(), ALL_FIELDS);
+
+        return criteria.isEmpty() ? null : intersect(criteria);
+    }
+
+    /**
+     * @return the books that match any criterion of {@code query}
+     */
+    private BitSet matchesOfAny(SearchBooksQuery query) {
+        final BitSet matches = new BitSet(documents.size());
+        if (query == null)
+            return matches;
+        orCriterion(matches, query.getTitle(), TITLE);
+        orCriterion(matches, query.getGenre(), GENRE);
+        orCriterion(matches, query.getAuthorName(), AUTHORS);
+        orCriterion(matches, query.getText(), ALL_FIELDS);
+        return matches;
+    }
+
+    /**
+     * Adds to {@code matches} the books with every word of {@code text} in one of {@code fields},
+     * unless {@code text} has no words.
+     */
+    private void orCriterion(BitSet matches, String text, int fields) {
+        BitSet criterion = null;
+        for (String word : words(text)) {
+            final BitSet books = new BitSet(documents.size());
+            for (Map<Integer, Integer> withWord : postingsOf(word).values()) {
+                withWord.forEach((book, bookFields) -> {
+                    if ((bookFields & fields) != 0)
+                        books.set(book);
+                });
+            }
+            if (criterion == null) {
+                criterion = books;
+            } else {
+                criterion.and(books);
+            }
+        }
+        if (criterion != null)
+            matches.or(criterion);
+    }
+
+    /**
+     * Selects the first {@code count} of the {@code matches} after {@code after}, by title.
+     * Walks the books by title while matches are dense enough to fill the slice soon, otherwise keeps the first
+     * ones in a heap of that size as the matches are visited, so neither sorts every match.
+     */
+    private List<Document> firstByTitle(BitSet matches, Document after, int count) {
+        final int matched = matches.cardinality();
+        if (matched == 0)
+            return List.of();
+
+        final List<Document> found = new ArrayList<>(Math.min(count, matched));
+        // a walk visits about count * books / matched books, a heap visits every match
+        if ((long) matched * matched >= (long) count * documentsByTitle.size()) {
+            for (Document document : after == null ? documentsByTitle : documentsByTitle.tailSet(after, false)) {
+                if (matches.get(documentIds.get(document.isbn))) {
+                    found.add(document);
+                    if (found.size() == count)
+                        break;
+                }
+            }
+            return found;
+        }
+
+        // last of the kept books on top
+        final PriorityQueue<Document> first = new PriorityQueue<>(count, BY_TITLE.reversed());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            final Document document = documents.get(id);
+            if (after != null && BY_TITLE.compare(document, after) <= 0)
+                continue;
+            if (first.size() < count) {
+                first.add(document);
+            } else if (BY_TITLE.compare(document, first.peek()) < 0) {
+                first.poll();
+                first.add(document);
+            }
+        }
+        found.addAll(first);
+        found.sort(BY_TITLE);
+        return found;
+    }
+
+    /**
+     * Adds the books with every word of {@code text} in one of {@code fields}, with their scores,
+     * unless {@code text} has no words.
+     */
+    private void addCriterion(List<Map<Integer, Integer>> criteria, String text, int fields) {
+        final List<String> words = words(text);
+        if (words.isEmpty())
+            return;
+        final List<Map<Integer, Integer>> matches = new ArrayList<>(words.size());
+        for (String word : words) {
+            matches.add(match(word, fields));
+        }
+        criteria.add(intersect(matches));
+    }
+
+    /**
+     * @return the books with a word starting with {@code prefix} in one of {@code fields}, with the score of the best field
+     */
+    private Map<Integer, Integer> match(String prefix, int fields) {
+        final Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Integer>> word : postingsOf(prefix).entrySet()) {
+            final int multiplier = word.getKey().length() == prefix.length() ? 2 : 1;
+            for (Map.Entry<Integer, Integer> book : word.getValue().entrySet()) {
+                final int matched = book.getValue() & fields;
+                if (matched != 0)
+                    scores.merge(book.getKey(), weight(matched) * multiplier, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * @return the postings of the indexed words {@code word} matches
+     */
+    private Map<String, Map<Integer, Integer>> postingsOf(String word) {
+        if (word.length() >= MIN_PREFIX_LENGTH)
+            return postings.subMap(word, true, word + Character.MAX_VALUE, false);
+        final Map<Integer, Integer> books = postings.get(word);
+        return books == null ? Map.of() : Map.of(word, books);
+    }
+
+    private static Map<Integer, Integer> intersect(List<Map<Integer, Integer>> matches) {
+        // starts from the fewest books, so the others are only probed
+        final List<Map<Integer, Integer>> bySize = new ArrayList<>(matches);
+        bySize.sort(Comparator.comparingInt(Map::size));
+        final Map<Integer, Integer> scores = new HashMap<>(bySize.get(0));
+        for (int i = 1; i < bySize.size() && !scores.isEmpty(); i++) {
+            final Map<Integer, Integer> other = bySize.get(i);
+            scores.entrySet().removeIf(book -> !other.containsKey(book.getKey()));
+            scores.replaceAll((book, score) -> score + other.get(book));
+        }
+        return scores;
+    }
+
+    /**
+     * Selects the {@code count} best ranked books with a heap of that size, instead of sorting every match.
+     */
+    private List<Hit> top(Map<Integer, Integer> scores, int count) {
+        final int capacity = Math.min(count, scores.size());
+        if (capacity <= 0)
+            return List.of();
+
+        // worst of the kept books on top
+        final PriorityQueue<Hit> best = new PriorityQueue<>(capacity, Collections.reverseOrder());
+        for (Map.Entry<Integer, Integer> book : scores.entrySet()) {
+            final Document document = documents.get(book.getKey());
+            final Hit hit = new Hit(book.getValue(), document.title, document.isbn);
+            if (best.size() < capacity) {
+                best.add(hit);
+            } else if (hit.compareTo(best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        final List<Hit> ranked = new ArrayList<>(best);
+        Collections.sort(ranked);
+        return ranked;
+    }
+
+    private static int weight(int fields) {
+        if ((fields & TITLE) != 0)
+            return 4;
+        if ((fields & AUTHORS) != 0)
+            return 3;
+        if ((fields & GENRE) != 0)
+            return 2;
+        return 1;
+    }
+
+    /**
+     * A book found, ordered by rank: most relevant first, then by title, then by isbn.
+     */
+    private static final class Hit implements Comparable<Hit> {
+        private final int score;
+        private final String title;
+        private final String isbn;
+
+        private Hit(int score, String title, String isbn) {
+            this.score = score;
+            this.title = title;
+            this.isbn = isbn;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            if (score != other.score)
+                return Integer.compare(other.score, score);
+            final int byTitle = title.compareTo(other.title);
+            return byTitle != 0 ? byTitle : isbn.compareTo(other.isbn);
+        }
+    }
+
+    private static final class Document {
+        private final String isbn;
+        private final String title;
+        private final String description;
+        private final String genre;
+        private final Map<Long, String> authorNames;
+
+        private Document(String isbn, String title, String description, String genre, Map<Long, String> authorNames) {
+            this.isbn = isbn;
+            this.title = title;
+            this.description = description;
+            this.genre = genre;
+            this.authorNames = Map.copyOf(authorNames);
+        }
+
+        private Map<String, Integer> fieldsByWord() {
+            final Map<String, Integer> fields = new HashMap<>();
+            words(title).forEach(word -> fields.merge(word, TITLE, (a, b) -> a | b));
+            authorNames.values().forEach(name -> words(name).forEach(word -> fields.merge(word, AUTHORS, (a, b) -> a | b)));
+            words(genre).forEach(word -> fields.merge(word, GENRE, (a, b) -> a | b));
+            words(description).forEach(word -> fields.merge(word, DESCRIPTION, (a, b) -> a | b));
+            return fields;
+        }
+    }
+}
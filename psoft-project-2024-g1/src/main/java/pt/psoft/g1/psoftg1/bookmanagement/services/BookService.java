@@ -2,6 +2,8 @@ package pt.psoft.g1.psoftg1.bookmanagement.services;
 
 
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.services.CountedPage;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
@@ -18,7 +20,22 @@ public interface BookService {
     List<Book> findByTitle(String title);
     List<Book> findByAuthorName(String authorName);
     List<BookCountDTO> findTop5BooksLent();
+    /**
+     * @param limit - maximum number of books to return, up to 100
+     * @return the books with the most lendings started in the {@code period} ending today, most lendings first
+     */
+    List<BookCountDTO> findTopBooksLent(int limit, LendingPeriod period);
     Book removeBookPhoto(String isbn, long desiredVersion);
     List<Book> getBooksSuggestionsForReader(String readerNumber);
-    List<Book> searchBooks(Page page, SearchBooksQuery query);
+    /**
+     * @return a page of the books that match every criterion of {@code query}, most relevant first,
+     * with the number of books that match
+     */
+    CountedPage<Book> searchBooks(Page page, SearchBooksQuery query);
+    /**
+     * @param cursor - token returned with the previous slice, {@code null} for the first slice
+     * @param limit  - maximum number of books to return, up to 100
+     * @return a slice of the books that match any criterion of {@code query}, most relevant first
+     */
+    CursorPage<Book> searchAnyBooks(SearchBooksQuery query, String cursor, int limit);
 }
@@ -1,9 +1,8 @@
 package pt.psoft.g1.psoftg1.bookmanagement.services;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import org.springframework.web.multipart.MultipartFile;
@@ -11,20 +10,23 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.*;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import lombok.RequiredArgsConstructor;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.BookLendingLeaderboard;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.CountedPage;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
+import pt.psoft.g1.psoftg1.shared.services.OptimisticLockRetry;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.RetryableUpdate;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
@@ -32,10 +34,15 @@ import java.util.Optional;
 public class BookServiceImpl implements BookService {
 
 	private final BookRepository bookRepository;
-	private final GenreRepository genreRepository;
+	private final GenreService genreService;
 	private final AuthorRepository authorRepository;
 	private final PhotoRepository photoRepository;
 	private final ReaderRepository readerRepository;
+	private final OptimisticLockRetry optimisticLockRetry;
+	private final BookSearchIndex bookSearchIndex;
+	private final BookCache bookCache;
+	private final BookLendingLeaderboard bookLendingLeaderboard;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Value("${suggestionsLimitPerGenre}")
 	private long suggestionsLimitPerGenre;
@@ -67,7 +74,7 @@ public class BookServiceImpl implements BookService {
 			request.setPhotoURI(null);
 		}
 
-		final var genre = genreRepository.findByString(request.getGenre())
+		final var genre = genreService.findByString(request.getGenre())
 				.orElseThrow(() -> new NotFoundException("Genre not found"));
 
 		Book newBook = new Book(isbn, request.getTitle(), request.getDescription(), genre, authors, photoURI);
@@ -79,7 +86,6 @@ public class BookServiceImpl implements BookService {
 	@Override
 	public Book update(UpdateBookRequest request, String currentVersion) {
 
-        var book = findByIsbn(request.getIsbn());
         if(request.getAuthors()!= null) {
             List<Long> authorNumbers = request.getAuthors();
             List<Author> authors = new ArrayList<>();
@@ -103,19 +109,41 @@ public class BookServiceImpl implements BookService {
 		}
 
         if (request.getGenre() != null) {
-            Optional<Genre> genre = genreRepository.findByString(request.getGenre());
+            Optional<Genre> genre = genreService.findByString(request.getGenre());
             if (genre.isEmpty()) {
                 throw new NotFoundException("Genre not found");
             }
             request.setGenreObj(genre.get());
         }
 
-        book.applyPatch(Long.parseLong(currentVersion), request);
+        final String isbn = request.getIsbn();
+        return optimisticLockRetry.execute("book.update", Long.parseLong(currentVersion), new RetryableUpdate<Book, Book>() {
+            @Override
+            public Book load() {
+                return findForUpdate(isbn);
+            }
 
-		bookRepository.save(book);
+            @Override
+            public long versionOf(Book book) {
+                return book.getVersion();
+            }
 
+            @Override
+            public Object touchedFields(Book book) {
+                return book.valuesPatchedBy(request);
+            }
 
-		return book;
+            @Override
+            public Book apply(long version) {
+                final var book = findForUpdate(isbn);
+                final String previousGenre = book.getGenre().getGenre();
+                book.applyPatch(version, request);
+                bookRepository.save(book);
+                if (!previousGenre.equals(book.getGenre().getGenre()))
+                    eventPublisher.publishEvent(new BookGenreChangedEvent(isbn, previousGenre, book.getGenre().getGenre()));
+                return book;
+            }
+        });
 	}
 
 	@Override
@@ -125,14 +153,31 @@ public class BookServiceImpl implements BookService {
 
 	@Override
 	public List<BookCountDTO> findTop5BooksLent(){
-		LocalDate oneYearAgo = LocalDate.now().minusYears(1);
-		Pageable pageableRules = PageRequest.of(0,5);
-		return this.bookRepository.findTop5BooksLent(oneYearAgo, pageableRules).getContent();
+		return findTopBooksLent(5, LendingPeriod.YEAR);
+	}
+
+	@Override
+	public List<BookCountDTO> findTopBooksLent(int limit, LendingPeriod period) {
+		if (limit < 1 || limit > 100)
+			throw new IllegalArgumentException("You can request between 1 and 100 records");
+		final LocalDate today = LocalDate.now();
+		final List<Map.Entry<String, Long>> top = bookLendingLeaderboard.top(limit, period.before(today), today);
+		final Map<String, Book> books = new HashMap<>();
+		for (Book book : findInOrder(top.stream().map(Map.Entry::getKey).toList())) {
+			books.put(book.getIsbn(), book);
+		}
+		final List<BookCountDTO> result = new ArrayList<>();
+		for (Map.Entry<String, Long> entry : top) {
+			final Book book = books.get(entry.getKey());
+			if (book != null)
+				result.add(new BookCountDTO(book, entry.getValue()));
+		}
+		return result;
 	}
 
 	@Override
 	public Book removeBookPhoto(String isbn, long desiredVersion) {
-		Book book = this.findByIsbn(isbn);
+		Book book = findForUpdate(isbn);
 		String photoFile;
 		try {
 			photoFile = book.getPhoto().getPhotoFile();
@@ -161,6 +206,12 @@ public class BookServiceImpl implements BookService {
 	}
 
 	public Book findByIsbn(String isbn) {
+		return bookCache.findByIsbn(isbn)
+				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
+	}
+
+	// kept books are shared, so the book to change is loaded from the repository
+	private Book findForUpdate(String isbn) {
 		return this.bookRepository.findByIsbn(isbn)
 				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
 	}
@@ -198,13 +249,29 @@ public class BookServiceImpl implements BookService {
 	}
 
 	@Override
-	public List<Book> searchBooks(Page page, SearchBooksQuery query) {
-		if (page == null) {
-			page = new Page(1, 10);
-		}
-		if (query == null) {
-			query = new SearchBooksQuery("", "", "");
+	public CountedPage<Book> searchBooks(Page page, SearchBooksQuery query) {
+		final CountedPage<String> isbns = bookSearchIndex.searchAll(query, page);
+		return new CountedPage<>(findInOrder(isbns.getItems()), isbns.getTotal());
+	}
+
+	@Override
+	public CursorPage<Book> searchAnyBooks(SearchBooksQuery query, String cursor, int limit) {
+		if (limit < 1 || limit > 100)
+			throw new IllegalArgumentException("You can request between 1 and 100 records");
+		final BookSearchCursor after = cursor == null || cursor.isBlank() ? null : BookSearchCursor.decode(cursor);
+		final CursorPage<String> isbns = bookSearchIndex.searchAny(query, after, limit);
+		return new CursorPage<>(findInOrder(isbns.getItems()), isbns.getNext());
+	}
+
+	private List<Book> findInOrder(List<String> isbns) {
+		if (isbns.isEmpty())
+			return List.of();
+		final Map<String, Book> books = new HashMap<>();
+		// the books are shown, so what they show is fetched with them
+		for (Book book : bookRepository.findWithDetailsByIsbnIn(isbns)) {
+			books.put(book.getIsbn(), book);
 		}
-		return bookRepository.searchBooks(page, query);
+		// a book deleted since it was indexed is left out
+		return isbns.stream().map(books::get).filter(Objects::nonNull).toList();
 	}
 }
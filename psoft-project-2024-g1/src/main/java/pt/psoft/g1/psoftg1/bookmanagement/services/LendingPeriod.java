@@ -0,0 +1,34 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * Periods, ending today, over which the most lent books are ranked.
+ */
+public enum LendingPeriod {
+    WEEK(Period.ofWeeks(1)),
+    MONTH(Period.ofMonths(1)),
+    YEAR(Period.ofYears(1));
+
+    private final Period period;
+
+    LendingPeriod(Period period) {
+        this.period = period;
+    }
+
+    /**
+     * @return the day before the first day of the period that ends on {@code today}
+     */
+    public LocalDate before(LocalDate today) {
+        return today.minus(period);
+    }
+
+    public static LendingPeriod fromString(String period) {
+        for (LendingPeriod p : values()) {
+            if (p.name().equalsIgnoreCase(period))
+                return p;
+        }
+        throw new IllegalArgumentException("Period must be one of week, month, year");
+    }
+}
@@ -1,5 +1,6 @@
 package pt.psoft.g1.psoftg1.bookmanagement.services;
 
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,4 +12,11 @@ public class SearchBooksQuery {
     private String title;
     private String genre;
     private String authorName;
+
+    @Schema(description = "Words to find anywhere in the title, description, genre or authors")
+    private String text;
+
+    public SearchBooksQuery(String title, String genre, String authorName) {
+        this(title, genre, authorName, null);
+    }
 }
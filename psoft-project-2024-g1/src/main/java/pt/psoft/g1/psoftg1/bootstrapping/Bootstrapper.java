@@ -13,7 +13,7 @@ import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
@@ -39,7 +39,7 @@ public class Bootstrapper implements CommandLineRunner {
     @Value("${fineValuePerDayInCents}")
     private int fineValuePerDayInCents;
 
-    private final GenreRepository genreRepository;
+    private final GenreService genreService;
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final LendingRepository lendingRepository;
@@ -129,30 +129,30 @@ public class Bootstrapper implements CommandLineRunner {
     }
 
     private void createGenres() {
-        if (genreRepository.findByString("Fantasia").isEmpty()) {
+        if (genreService.findByString("Fantasia").isEmpty()) {
             final Genre g1 = new Genre("Fantasia");
-            genreRepository.save(g1);
+            genreService.save(g1);
         }
-        if (genreRepository.findByString("Informação").isEmpty()) {
+        if (genreService.findByString("Informação").isEmpty()) {
             final Genre g2 = new Genre("Informação");
-            genreRepository.save(g2);
+            genreService.save(g2);
         }
-        if (genreRepository.findByString("Romance").isEmpty()) {
+        if (genreService.findByString("Romance").isEmpty()) {
             final Genre g3 = new Genre("Romance");
-            genreRepository.save(g3);
+            genreService.save(g3);
         }
-        if (genreRepository.findByString("Infantil").isEmpty()) {
+        if (genreService.findByString("Infantil").isEmpty()) {
             final Genre g4 = new Genre("Infantil");
-            genreRepository.save(g4);
+            genreService.save(g4);
         }
-        if (genreRepository.findByString("Thriller").isEmpty()) {
+        if (genreService.findByString("Thriller").isEmpty()) {
             final Genre g5 = new Genre("Thriller");
-            genreRepository.save(g5);
+            genreService.save(g5);
         }
     }
 
     protected void createBooks() {
-        Optional<Genre> genre = Optional.ofNullable(genreRepository.findByString("Infantil"))
+        Optional<Genre> genre = Optional.ofNullable(genreService.findByString("Infantil"))
                 .orElseThrow(() -> new NotFoundException("Cannot find genre"));
         List<Author> author = authorRepository.searchByNameName("Manuel Antonio Pina");
 
@@ -189,7 +189,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 3 - C e Algoritmos
         if(bookRepository.findByIsbn("9789895612864").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Informação"))
+            genre = Optional.ofNullable(genreService.findByString("Informação"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("Alexandre Pereira");
             if (genre.isPresent() && !author.isEmpty()) {
@@ -211,7 +211,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 4 - Introdução ao Desenvolvimento Moderno para a Web
         if(bookRepository.findByIsbn("9782722203402").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Informação"))
+            genre = Optional.ofNullable(genreService.findByString("Informação"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("Filipe Portela");
             List<Author> author2 = authorRepository.searchByNameName("Ricardo Queirós");
@@ -253,7 +253,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 5 - O Principezinho
         if(bookRepository.findByIsbn("9789722328296").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Infantil"))
+            genre = Optional.ofNullable(genreService.findByString("Infantil"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("Antoine de Saint Exupéry");
             if (genre.isPresent() && !author.isEmpty()) {
@@ -271,7 +271,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 6 - A Criada Está a Ver
         if(bookRepository.findByIsbn("9789895702756").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Thriller"))
+            genre = Optional.ofNullable(genreService.findByString("Thriller"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("Freida Mcfadden");
             if (genre.isPresent() && !author.isEmpty()) {
@@ -289,7 +289,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 7 - O Hobbit
         if(bookRepository.findByIsbn("9789897776090").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Fantasia"))
+            genre = Optional.ofNullable(genreService.findByString("Fantasia"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("J R R Tolkien");
             if (genre.isPresent() && !author.isEmpty()) {
@@ -312,7 +312,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 8 - Histórias de Vigaristas e Canalhas
         if(bookRepository.findByIsbn("9789896379636").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Fantasia"))
+            genre = Optional.ofNullable(genreService.findByString("Fantasia"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("J R R Tolkien");
             List<Author> author2 = authorRepository.searchByNameName("Gardner Dozois");
@@ -335,7 +335,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 9 - Histórias de Aventureiros e Patifes
         if(bookRepository.findByIsbn("9789896378905").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Fantasia"))
+            genre = Optional.ofNullable(genreService.findByString("Fantasia"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("J R R Tolkien");
             List<Author> author2 = authorRepository.searchByNameName("Gardner Dozois");
@@ -358,7 +358,7 @@ public class Bootstrapper implements CommandLineRunner {
         // 10 - Windhaven
         if(bookRepository.findByIsbn("9789896375225").isEmpty()) {
             List<Author> authors = new ArrayList<>();
-            genre = Optional.ofNullable(genreRepository.findByString("Fantasia"))
+            genre = Optional.ofNullable(genreService.findByString("Fantasia"))
                     .orElseThrow(() -> new NotFoundException("Cannot find genre"));
             author = authorRepository.searchByNameName("J R R Tolkien");
             List<Author> author2 = authorRepository.searchByNameName("Lisa Tuttle");
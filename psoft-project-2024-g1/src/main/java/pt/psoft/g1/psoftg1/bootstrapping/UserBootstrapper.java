@@ -8,7 +8,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
@@ -32,7 +32,7 @@ public class UserBootstrapper implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final ReaderRepository readerRepository;
-    private final GenreRepository genreRepository;
+    private final GenreService genreService;
     private final JdbcTemplate jdbcTemplate;
     private List<String> queriesToExecute = new ArrayList<>();
 
@@ -57,8 +57,8 @@ public class UserBootstrapper implements CommandLineRunner {
             queriesToExecute.add(query);
 
             Optional<ReaderDetails> readerDetails1= readerRepository.findByReaderNumber(LocalDate.now().getYear() + "/1");
-            Optional<Genre> g1 = genreRepository.findByString("Fantasia");
-            Optional<Genre> g2 = genreRepository.findByString("Infantil");
+            Optional<Genre> g1 = genreService.findByString("Fantasia");
+            Optional<Genre> g2 = genreService.findByString("Infantil");
             List<Genre> interestList = new ArrayList<>();
             if(g1.isPresent()) {
                 interestList.add(g1.get());
@@ -0,0 +1,29 @@
+package pt.psoft.g1.psoftg1.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threads the report jobs run on.
+ */
+@Configuration
+@PropertySource({"classpath:config/library.properties"})
+public class ReportConfig {
+
+    /**
+     * Runs the report jobs, highest priority first. Tasks must be given with {@code execute}, as the queue
+     * orders them, and {@code submit} would wrap them into tasks that cannot be compared.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor reportExecutor(@Value("${reportThreads}") int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                new CustomizableThreadFactory("report-"));
+    }
+}
@@ -0,0 +1,12 @@
+package pt.psoft.g1.psoftg1.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs, such as the daily fine accrual.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
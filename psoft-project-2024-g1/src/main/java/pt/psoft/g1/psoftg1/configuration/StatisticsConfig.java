@@ -0,0 +1,22 @@
+package pt.psoft.g1.psoftg1.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pool the lending statistics are aggregated on in parallel, kept apart from the common pool
+ * so long aggregations never starve other parallel work.
+ */
+@Configuration
+@PropertySource({"classpath:config/library.properties"})
+public class StatisticsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool statisticsPool(@Value("${statisticsParallelism}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -36,6 +36,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -62,7 +63,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
 	private final Logger logger = LogManager.getLogger();
 
-	@ExceptionHandler(value = { org.hibernate.StaleObjectStateException.class, ConflictException.class })
+	@ExceptionHandler(value = { org.hibernate.StaleObjectStateException.class, ObjectOptimisticLockingFailureException.class, ConflictException.class })
 	@ResponseStatus(HttpStatus.CONFLICT)
 	protected ResponseEntity<Object> handleConflict(final HttpServletRequest request, final Exception ex) {
 		logger.error("ConflictException {}\n", request.getRequestURI(), ex);
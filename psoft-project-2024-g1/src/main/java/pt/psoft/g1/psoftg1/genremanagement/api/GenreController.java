@@ -1,15 +1,24 @@
 package pt.psoft.g1.psoftg1.genremanagement.api;
 
+import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingMonthService;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
 import pt.psoft.g1.psoftg1.genremanagement.services.GetAverageLendingsQuery;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StatisticsCache;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Tag(name = "Genres", description = "Endpoints for managing Genres")
 @RestController
 @RequiredArgsConstructor
@@ -17,17 +26,22 @@ import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 public class GenreController {
     private final GenreService genreService;
     private final GenreViewMapper genreViewMapper;
+    private final GenreLendingMonthService genreLendingMonthService;
+    private final StatisticsCache statisticsCache;
 
     @PostMapping(value="/avgLendingsPerGenre")
     public ListResponse<GenreLendingsView> getAverageLendings(
             @Valid @RequestBody final SearchRequest<GetAverageLendingsQuery> query){
-        final var list = genreService.getAverageLendings(query.getQuery(), query.getPage());
-        return new ListResponse<>(genreViewMapper.toGenreAvgLendingsView(list));
+        final var page = query.getPage() == null ? new Page(1, 10) : query.getPage();
+        final var avgLendings = query.getQuery();
+        return new ListResponse<>(statisticsCache.get("genres.avgLendingsPerGenre",
+                Arrays.asList(avgLendings.getYear(), avgLendings.getMonth(), page.getNumber(), page.getLimit()),
+                () -> genreViewMapper.toGenreAvgLendingsView(genreService.getAverageLendings(avgLendings, page))));
     }
 
     @GetMapping("/top5")
     public ListResponse<GenreBookCountView> getTop() {
-        final var list = genreService.findTopGenreByBooks();
+        final var list = statisticsCache.get("genres.top5", List.of(), genreService::findTopGenreByBooks);
 
         if(list.isEmpty())
             throw new NotFoundException("No genres to show");
@@ -37,13 +51,12 @@ public class GenreController {
 
     @GetMapping("/lendingsPerMonthLastTwelveMonths")
     public ListResponse<GenreLendingsCountPerMonthView> getLendingsPerMonthLastYearByGenre() {
-        final var list = genreService.getLendingsPerMonthLastYearByGenre();
+        final var viewList = statisticsCache.get("genres.lendingsPerMonthLastTwelveMonths", List.of(),
+                () -> genreViewMapper.toGenreLendingsCountPerMonthView(genreService.getLendingsPerMonthLastYearByGenre()));
 
-        if(list.isEmpty())
+        if(viewList.isEmpty())
             throw new NotFoundException("No genres to show");
 
-        final var viewList = genreViewMapper.toGenreLendingsCountPerMonthView(list);
-
         return new ListResponse<>(viewList);
     }
 
@@ -51,13 +64,21 @@ public class GenreController {
     public ListResponse<GenreLendingsAvgPerMonthView> getLendingsAverageDurationPerMonth(
             @RequestParam("startDate") final String start,
             @RequestParam("endDate") final String end) {
-        final var list = genreService.getLendingsAverageDurationPerMonth(start, end);
+        final var viewList = statisticsCache.get("genres.lendingsAverageDurationPerMonth", List.of(start.trim(), end.trim()),
+                () -> genreViewMapper.toGenreLendingsAveragePerMonthView(genreService.getLendingsAverageDurationPerMonth(start, end)));
 
-        if(list.isEmpty())
+        if(viewList.isEmpty())
             throw new NotFoundException("No genres to show");
 
-        final var viewList = genreViewMapper.toGenreLendingsAveragePerMonthView(list);
-
         return new ListResponse<>(viewList);
     }
+
+    @Operation(summary = "Rebuilds the lending statistics of every genre and month from the lendings")
+    @PostMapping("/lendingStatistics/rebuild")
+    public ResponseEntity<Void> rebuildLendingStatistics() {
+        genreLendingMonthService.rebuild();
+        // the rebuild has committed, so answers computed from here on see the rebuilt totals
+        statisticsCache.invalidate();
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
 }
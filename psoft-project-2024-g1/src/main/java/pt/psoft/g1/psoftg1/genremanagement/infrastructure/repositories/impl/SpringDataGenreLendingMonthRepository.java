@@ -0,0 +1,105 @@
+package pt.psoft.g1.psoftg1.genremanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingMonth;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingMonthRepository;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+public interface SpringDataGenreLendingMonthRepository extends GenreLendingMonthRepository, GenreLendingMonthRepoCustom, CrudRepository<GenreLendingMonth, Long> {
+
+    @Override
+    default List<GenreLendingMonth> findBetween(YearMonth from, YearMonth to) {
+        return findBetween(GenreLendingMonth.toYearMonth(from), GenreLendingMonth.toYearMonth(to));
+    }
+
+    @Query("SELECT m " +
+            "FROM GenreLendingMonth m " +
+            "WHERE m.yearMonth BETWEEN :fromYearMonth AND :toYearMonth " +
+                "AND m.lendings > 0 " +
+            "ORDER BY m.yearMonth, m.genre")
+    List<GenreLendingMonth> findBetween(@Param("fromYearMonth") int fromYearMonth, @Param("toYearMonth") int toYearMonth);
+
+    @Override
+    default int addTotals(String genre, YearMonth month, long lendings, long returnedLendings, long totalDays) {
+        return addTotals(genre, GenreLendingMonth.toYearMonth(month), lendings, returnedLendings, totalDays);
+    }
+
+    @Modifying
+    @Query("UPDATE GenreLendingMonth m " +
+            "SET m.lendings = m.lendings + :lendings, " +
+                "m.returnedLendings = m.returnedLendings + :returnedLendings, " +
+                "m.totalDays = m.totalDays + :totalDays " +
+            "WHERE m.genre = :genre " +
+                "AND m.yearMonth = :yearMonth")
+    int addTotals(@Param("genre") String genre, @Param("yearMonth") int yearMonth, @Param("lendings") long lendings,
+                  @Param("returnedLendings") long returnedLendings, @Param("totalDays") long totalDays);
+
+    // runs in its own transaction, so a concurrent creation of the same totals only fails this one
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    void createMonth(String genre, YearMonth month);
+
+    @Override
+    @Modifying
+    @Query("DELETE FROM GenreLendingMonth m")
+    void deleteAllMonths();
+}
+
+interface GenreLendingMonthRepoCustom {
+    void createMonth(String genre, YearMonth month);
+
+    List<GenreLendingMonth> computeFromLendingsOfBook(String isbn, String genre);
+}
+
+@RequiredArgsConstructor
+class GenreLendingMonthRepoCustomImpl implements GenreLendingMonthRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public void createMonth(String genre, YearMonth month) {
+        em.persist(new GenreLendingMonth(genre, month, 0, 0, 0));
+        // insert right away, so a duplicate fails here rather than on commit
+        em.flush();
+    }
+
+    @Override
+    public List<GenreLendingMonth> computeFromLendingsOfBook(String isbn, String genre) {
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = em.createNativeQuery(
+                        "SELECT d.YEAR_MONTH, COUNT(*), COUNT(d.DAYS), COALESCE(SUM(d.DAYS), 0) " +
+                        "FROM (" +
+                            "SELECT YEAR(l.start_date) * 100 + MONTH(l.start_date) AS YEAR_MONTH, " +
+                                "DATEDIFF(day, l.start_date, l.returned_date) AS DAYS " +
+                            "FROM Lending l " +
+                            "JOIN BOOK b ON l.BOOK_PK = b.PK " +
+                            "WHERE b.ISBN = :isbn " +
+                            "UNION ALL " +
+                            "SELECT YEAR(a.START_DATE) * 100 + MONTH(a.START_DATE), " +
+                                "DATEDIFF(day, a.START_DATE, a.RETURNED_DATE) " +
+                            "FROM LENDING_ARCHIVE a " +
+                            "WHERE a.ISBN = :isbn" +
+                        ") d " +
+                        "GROUP BY d.YEAR_MONTH " +
+                        "ORDER BY d.YEAR_MONTH")
+                .setParameter("isbn", isbn)
+                .getResultList();
+
+        final List<GenreLendingMonth> months = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            final int yearMonth = ((Number) row[0]).intValue();
+            months.add(new GenreLendingMonth(genre, YearMonth.of(yearMonth / 100, yearMonth % 100),
+                    ((Number) row[1]).longValue(), ((Number) row[2]).longValue(), ((Number) row[3]).longValue()));
+        }
+        return months;
+    }
+}
@@ -0,0 +1,91 @@
+package pt.psoft.g1.psoftg1.genremanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.YearMonth;
+
+/**
+ * The {@code GenreLendingMonth} class keeps the totals of the lendings of a {@code Genre} started in a month:
+ * how many there are, how many are returned and the sum of the durations of those returned.
+ * <p>There is one per genre and month with lendings, so statistics per genre and month never have to scan the lendings.
+ */
+@Entity
+@Table(name = "GENRE_LENDING_MONTH", uniqueConstraints = {
+        @UniqueConstraint(name = "uc_genre_lending_month", columnNames = {"GENRE", "YEAR_MONTH"})
+})
+public class GenreLendingMonth {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long pk;
+
+    /**Name of the genre*/
+    @Column(nullable = false, length = 100)
+    @Getter
+    private String genre;
+
+    /**Month the lendings started, as {@code yyyyMM}*/
+    @Column(nullable = false)
+    @Getter
+    private int yearMonth;
+
+    /**Number of lendings*/
+    @Getter
+    private long lendings;
+
+    /**Number of returned lendings*/
+    @Getter
+    private long returnedLendings;
+
+    /**Sum of the durations, in days, of the returned lendings*/
+    @Getter
+    private long totalDays;
+
+    /**
+     * Constructs a new {@code GenreLendingMonth}.
+     * @param   genre               name of the genre.
+     * @param   month               month the lendings started.
+     * @param   lendings            number of lendings.
+     * @param   returnedLendings    number of returned lendings.
+     * @param   totalDays           sum of the durations of the returned lendings.
+     * */
+    public GenreLendingMonth(String genre, YearMonth month, long lendings, long returnedLendings, long totalDays) {
+        if(genre == null)
+            throw new IllegalArgumentException("Genre cannot be null");
+        if(month == null)
+            throw new IllegalArgumentException("Month cannot be null");
+        if(lendings < 0 || returnedLendings < 0 || returnedLendings > lendings)
+            throw new IllegalArgumentException("Returned lendings must be between 0 and the number of lendings");
+        this.genre = genre;
+        this.yearMonth = toYearMonth(month);
+        this.lendings = lendings;
+        this.returnedLendings = returnedLendings;
+        this.totalDays = totalDays;
+    }
+
+    public int getYear() {
+        return yearMonth / 100;
+    }
+
+    public int getMonth() {
+        return yearMonth % 100;
+    }
+
+    /**
+     * @return the average duration of the returned lendings, or {@code null} if there are none
+     * */
+    public Double getAverageDays() {
+        return returnedLendings == 0 ? null : (double) totalDays / returnedLendings;
+    }
+
+    /**
+     * @return {@code month} as {@code yyyyMM}, the way months are stored and compared
+     * */
+    public static int toYearMonth(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected GenreLendingMonth() {}
+}
@@ -0,0 +1,47 @@
+package pt.psoft.g1.psoftg1.genremanagement.repositories;
+
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingMonth;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public interface GenreLendingMonthRepository {
+    /**
+     * @param from - first month
+     * @param to   - last month
+     * @return the totals of every genre with lendings in those months, ordered by month and genre
+     */
+    List<GenreLendingMonth> findBetween(YearMonth from, YearMonth to);
+
+    /**
+     * Adds to the totals of a genre in a month with a single update, that reads and writes them at once.
+     * @param genre - name of the genre
+     * @param month - month the lendings started
+     * @return the number of totals updated, {@code 0} if the genre has no totals for the month yet
+     */
+    int addTotals(String genre, YearMonth month, long lendings, long returnedLendings, long totalDays);
+
+    /**
+     * Creates empty totals of a genre in a month, in a transaction of their own.
+     * @throws org.springframework.dao.DataIntegrityViolationException if the genre already has totals for the month
+     */
+    void createMonth(String genre, YearMonth month);
+
+    /**
+     * Computes the totals of the lendings of a book, archived ones included, per start month, straight from the lendings.
+     * The returned totals are not persisted.
+     * @param isbn  - ISBN of the book
+     * @param genre - name of the genre the totals are given for
+     * @return the computed totals, ordered by month
+     */
+    List<GenreLendingMonth> computeFromLendingsOfBook(String isbn, String genre);
+
+    long count();
+
+    /**
+     * Deletes the totals of every genre and month at once, rather than one row at a time.
+     */
+    void deleteAllMonths();
+
+    <S extends GenreLendingMonth> Iterable<S> saveAll(Iterable<S> genreLendingMonths);
+}
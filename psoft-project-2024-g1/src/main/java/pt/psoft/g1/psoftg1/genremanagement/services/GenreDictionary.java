@@ -0,0 +1,96 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.util.*;
+
+/**
+ * In-memory dictionary of the genres, looked up by name ignoring case.
+ * <p>
+ * The genres are loaded into an immutable snapshot once the application context is refreshed, before any runner or request.
+ * A genre saved through {@link GenreService} is added to a copy of the snapshot once its transaction commits,
+ * so lookups never lock nor see uncommitted genres.
+ * A name that is not in the dictionary is still looked up in the database, as it may have been saved
+ * by another instance or in the current transaction, but it is not added. That lookup compares names with plain
+ * equality, so the unique index on the name is used, and ignores case where the database does, e.g. with H2's
+ * {@code IGNORECASE=TRUE}.
+ */
+@Service
+@RequiredArgsConstructor
+public class GenreDictionary {
+    private final GenreRepository genreRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param name - name of the genre, in any case
+     * @return the genre with that name
+     */
+    public Optional<Genre> findByName(String name) {
+        if (name == null)
+            return Optional.empty();
+        final Genre genre = snapshot().genres.get(key(name));
+        return genre != null ? Optional.of(genre) : genreRepository.findByString(name);
+    }
+
+    /**
+     * Adds a saved genre to the dictionary when its transaction commits, or right away if there is no transaction.
+     */
+    void register(Genre genre) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(genre);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(genre);
+            }
+        });
+    }
+
+    /**
+     * Loads the genres in the database, outside of any transaction, so only committed genres are loaded.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void load() {
+        if (snapshot != null)
+            return;
+        final Map<String, Genre> genres = new HashMap<>();
+        genreRepository.findAll().forEach(genre -> genres.put(key(genre.getGenre()), genre));
+        snapshot = new Snapshot(genres);
+    }
+
+    private synchronized void add(Genre genre) {
+        final Map<String, Genre> genres = new HashMap<>(snapshot().genres);
+        genres.put(key(genre.getGenre()), genre);
+        snapshot = new Snapshot(genres);
+    }
+
+    private Snapshot snapshot() {
+        final Snapshot current = snapshot;
+        if (current == null)
+            throw new IllegalStateException("Genres are not loaded yet");
+        return current;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Snapshot {
+        // by name in lower case
+        private final Map<String, Genre> genres;
+
+        private Snapshot(Map<String, Genre> genres) {
+            this.genres = Map.copyOf(genres);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreChangedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsCreatedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsReturnedEvent;
+
+public interface GenreLendingMonthService {
+    /**
+     * Adds created lendings to the totals of their genre and start month.
+     * Runs in the transaction that creates them, right before it commits.
+     */
+    void onLendingsCreated(LendingsCreatedEvent event);
+
+    /**
+     * Adds returned lendings and their durations to the totals of their genre and start month.
+     * Runs in the transaction that returns them, right before it commits.
+     */
+    void onLendingsReturned(LendingsReturnedEvent event);
+
+    /**
+     * Moves the totals of the lendings of a book from its previous genre to its new one.
+     * Runs once the change of genre commits, in a transaction of its own.
+     */
+    void onBookGenreChanged(BookGenreChangedEvent event);
+
+    /**
+     * Rebuilds the totals of every genre and month from the lendings, archived ones included.
+     */
+    void rebuild();
+}
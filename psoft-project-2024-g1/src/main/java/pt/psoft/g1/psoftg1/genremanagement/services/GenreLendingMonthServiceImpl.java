@@ -0,0 +1,133 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreChangedEvent;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingMonth;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingMonthRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.*;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Keeps the number of lendings, returned lendings and the sum of their durations, per genre and start month,
+ * so the genre statistics read a few rows per month whatever the number of lendings.
+ * <p>
+ * Totals are updated in the same transaction that creates or returns the lendings, right before it commits,
+ * so their rows stay locked only while it commits. Each row is updated by adding to it in a single statement,
+ * the rows of each month and genre in that order, so concurrent updates cannot deadlock.
+ * The first lendings of a genre in a month create its row in a transaction of their own, which fails harmlessly
+ * if a concurrent transaction creates it first. Archiving a lending does not change the totals.
+ * <p>
+ * Lendings are counted in the current genre of their book: once a change of genre commits, the totals of the lendings
+ * of the book are moved to its new genre, so they match what a rebuild gives. A lending created or returned while the
+ * genre of its book changes may stay counted in the previous genre until the next rebuild.
+ */
+@Service
+@RequiredArgsConstructor
+public class GenreLendingMonthServiceImpl implements GenreLendingMonthService {
+    private final GenreLendingMonthRepository genreLendingMonthRepository;
+    private final LendingColumnStore lendingColumnStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onLendingsCreated(LendingsCreatedEvent event) {
+        for (Map.Entry<YearMonth, SortedMap<String, long[]>> month : totalsPerMonthAndGenre(event.getLendings()).entrySet()) {
+            for (Map.Entry<String, long[]> genre : month.getValue().entrySet()) {
+                addTotals(genre.getKey(), month.getKey(), genre.getValue()[0], 0, 0);
+            }
+        }
+    }
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onLendingsReturned(LendingsReturnedEvent event) {
+        for (Map.Entry<YearMonth, SortedMap<String, long[]>> month : totalsPerMonthAndGenre(event.getLendings()).entrySet()) {
+            for (Map.Entry<String, long[]> genre : month.getValue().entrySet()) {
+                addTotals(genre.getKey(), month.getKey(), 0, genre.getValue()[0], genre.getValue()[1]);
+            }
+        }
+    }
+
+    // before the cached statistics are dropped, so they are not computed again from the old totals
+    @Override
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookGenreChanged(BookGenreChangedEvent event) {
+        // the two genres of each month are updated in name order, like any other update of the totals
+        final SortedSet<String> genres = new TreeSet<>(List.of(event.getPreviousGenre(), event.getGenre()));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (GenreLendingMonth m : genreLendingMonthRepository.computeFromLendingsOfBook(event.getIsbn(), event.getGenre())) {
+                final YearMonth month = YearMonth.of(m.getYear(), m.getMonth());
+                for (String genre : genres) {
+                    final long sign = genre.equals(event.getGenre()) ? 1 : -1;
+                    addTotals(genre, month, sign * m.getLendings(), sign * m.getReturnedLendings(), sign * m.getTotalDays());
+                }
+            }
+        });
+    }
+
+    private void addTotals(String genre, YearMonth month, long lendings, long returnedLendings, long totalDays) {
+        if (genreLendingMonthRepository.addTotals(genre, month, lendings, returnedLendings, totalDays) > 0)
+            return;
+        try {
+            genreLendingMonthRepository.createMonth(genre, month);
+        } catch (DataIntegrityViolationException e) {
+            // created by a concurrent transaction since
+        }
+        genreLendingMonthRepository.addTotals(genre, month, lendings, returnedLendings, totalDays);
+    }
+
+    /**
+     * @return number of lendings and sum of the durations of the returned ones, per start month and genre, in locking order
+     */
+    private static SortedMap<YearMonth, SortedMap<String, long[]>> totalsPerMonthAndGenre(List<LendingFact> lendings) {
+        final SortedMap<YearMonth, SortedMap<String, long[]>> totals = new TreeMap<>();
+        for (LendingFact l : lendings) {
+            final long[] t = totals.computeIfAbsent(YearMonth.from(l.getStartDate()), month -> new TreeMap<>())
+                    .computeIfAbsent(l.getGenre(), genre -> new long[2]);
+            t[0]++;
+            if (l.getReturnedDate() != null)
+                t[1] += ChronoUnit.DAYS.between(l.getStartDate(), l.getReturnedDate());
+        }
+        return totals;
+    }
+
+    /**
+     * Lendings created or returned while the rebuild runs may be missed, so it is meant for backfilling
+     * and for maintenance windows.
+     */
+    @Override
+    public synchronized void rebuild() {
+        lendingColumnStore.reload();
+        final List<GenreLendingMonth> months = new ArrayList<>();
+        for (LendingTotals t : lendingColumnStore.totalsPerMonthAndGenre()) {
+            months.add(new GenreLendingMonth(t.getGenre(), t.getMonth(), t.getLendings(), t.getReturnedLendings(), t.getTotalDays()));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            genreLendingMonthRepository.deleteAllMonths();
+            genreLendingMonthRepository.saveAll(months);
+        });
+    }
+
+    /**
+     * Builds the totals on the first start over an existing database, e.g. one with bootstrapped lendings.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (genreLendingMonthRepository.count() == 0)
+            rebuild();
+    }
+}
@@ -7,23 +7,27 @@ import org.springframework.stereotype.Service;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingMonth;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingMonthRepository;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class GenreServiceImpl implements GenreService {
 
     private final GenreRepository genreRepository;
-
+    private final GenreDictionary genreDictionary;
+    private final GenreLendingMonthRepository genreLendingMonthRepository;
 
     public Optional<Genre> findByString(String name) {
-        return genreRepository.findByString(name);
+        return genreDictionary.findByName(name);
     }
 
     @Override
@@ -39,12 +43,16 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public Genre save(Genre genre) {
-        return this.genreRepository.save(genre);
+        final Genre saved = this.genreRepository.save(genre);
+        genreDictionary.register(saved);
+        return saved;
     }
 
     @Override
     public List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre() {
-        return genreRepository.getLendingsPerMonthLastYearByGenre();
+        final YearMonth now = YearMonth.now();
+        return toGenreLendingsPerMonth(genreLendingMonthRepository.findBetween(now.minusMonths(12), now),
+                m -> new GenreLendingsDTO(m.getGenre(), m.getLendings()));
     }
 
     @Override
@@ -52,9 +60,16 @@ public class GenreServiceImpl implements GenreService {
         if (page == null)
             page = new Page(1, 10);
 
-        final var month = LocalDate.of(query.getYear(), query.getMonth(), 1);
+        final var month = YearMonth.of(query.getYear(), query.getMonth());
+        final int days = month.lengthOfMonth();
+
+        final List<GenreLendingsDTO> averages = new ArrayList<>();
+        for (GenreLendingMonth m : genreLendingMonthRepository.findBetween(month, month)) {
+            averages.add(new GenreLendingsDTO(m.getGenre(), (double) m.getLendings() / days));
+        }
 
-        return genreRepository.getAverageLendingsInMonth(month, page);
+        final int from = Math.min((page.getNumber() - 1) * page.getLimit(), averages.size());
+        return averages.subList(from, Math.min(from + page.getLimit(), averages.size()));
     }
 
     @Override
@@ -72,11 +87,34 @@ public class GenreServiceImpl implements GenreService {
         if(startDate.isAfter(endDate))
             throw new IllegalArgumentException("Start date cannot be after end date");
 
-        final var list = genreRepository.getLendingsAverageDurationPerMonth(startDate, endDate);
+        // totals are kept per month, so the range covers the whole months of both dates
+        final List<GenreLendingMonth> returned = new ArrayList<>();
+        for (GenreLendingMonth m : genreLendingMonthRepository.findBetween(YearMonth.from(startDate), YearMonth.from(endDate))) {
+            if (m.getReturnedLendings() > 0)
+                returned.add(m);
+        }
+        final var list = toGenreLendingsPerMonth(returned, m -> new GenreLendingsDTO(m.getGenre(), m.getAverageDays()));
 
         if (list.isEmpty())
             throw new NotFoundException("No objects match the provided criteria");
 
         return list;
     }
+
+    /**
+     * @param months - totals ordered by month and genre
+     */
+    private static List<GenreLendingsPerMonthDTO> toGenreLendingsPerMonth(List<GenreLendingMonth> months,
+                                                                          Function<GenreLendingMonth, GenreLendingsDTO> toGenreLendings) {
+        final List<GenreLendingsPerMonthDTO> lendingsPerMonth = new ArrayList<>();
+        GenreLendingsPerMonthDTO current = null;
+        for (GenreLendingMonth m : months) {
+            if (current == null || current.getYear() != m.getYear() || current.getMonth() != m.getMonth()) {
+                current = new GenreLendingsPerMonthDTO(m.getYear(), m.getMonth(), new ArrayList<>());
+                lendingsPerMonth.add(current);
+            }
+            current.getValues().add(toGenreLendings.apply(m));
+        }
+        return lendingsPerMonth;
+    }
 }
@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Schema(description = "Total fines accrued by overdue lendings")
+public class FineAccrualSnapshotView {
+    private long totalCents;
+
+    private LocalDate accruedOn;
+}
@@ -2,13 +2,19 @@ package pt.psoft.g1.psoftg1.lendingmanagement.api;
 
 import org.mapstruct.*;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualSnapshot;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingNumber;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineBalance;
 
 import java.util.Optional;
 
 @Mapper(componentModel = "spring")
 public abstract class FineViewMapper{
+
+    public abstract FineAccrualSnapshotView toFineAccrualSnapshotView(FineAccrualSnapshot snapshot);
+
+    public abstract ReaderFineBalanceView toReaderFineBalanceView(ReaderFineBalance readerFineBalance);
 /*
     public abstract FineView toFineView(Fine fine);
 */
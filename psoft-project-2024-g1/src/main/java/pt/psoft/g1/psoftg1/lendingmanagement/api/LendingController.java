@@ -3,6 +3,8 @@ package pt.psoft.g1.psoftg1.lendingmanagement.api;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -12,25 +14,36 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingsRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.FineAccrualService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingExportFormat;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReturnLendingsRequest;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SearchLendingQuery;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
 import pt.psoft.g1.psoftg1.readermanagement.api.ReaderLendingsAvgPerMonthView;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.shared.api.CursorListResponse;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
+import pt.psoft.g1.psoftg1.shared.services.IdempotencyService;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 
@@ -43,24 +56,42 @@ public class LendingController {
     private final ReaderService readerService;
     private final UserService userService;
     private final ConcurrencyService concurrencyService;
+    private final IdempotencyService idempotencyService;
+
+    private final FineAccrualService fineAccrualService;
 
     private final LendingViewMapper lendingViewMapper;
+    private final FineViewMapper fineViewMapper;
 
     @Operation(summary = "Creates a new Lending")
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<LendingView> create(@Valid @RequestBody final CreateLendingRequest resource) {
+    public ResponseEntity<LendingView> create(
+            final Authentication authentication,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY, required = false)
+                @Parameter(description = "Key that identifies retries of the same request")
+                final String idempotencyKey,
+            @Valid @RequestBody final CreateLendingRequest resource) {
 
-        final var lending = lendingService.create(resource);
+        return idempotencyService.execute(idempotencyKey, authentication.getName(), "POST /api/lendings", resource, () -> {
+            final var lending = lendingService.create(resource);
 
-        final var newlendingUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
-                .pathSegment(lending.getLendingNumber())
-                .build().toUri();
+            final var newlendingUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                    .pathSegment(lending.getLendingNumber())
+                    .build().toUri();
 
-        return ResponseEntity.created(newlendingUri)
-                .contentType(MediaType.parseMediaType("application/hal+json"))
-                .eTag(Long.toString(lending.getVersion()))
-                .body(lendingViewMapper.toLendingView(lending));
+            return ResponseEntity.created(newlendingUri)
+                    .contentType(MediaType.parseMediaType("application/hal+json"))
+                    .eTag(Long.toString(lending.getVersion()))
+                    .body(lendingViewMapper.toLendingView(lending));
+        });
+    }
+
+    @Operation(summary = "Creates several Lendings for the same Reader")
+    @PostMapping(value = "/batch")
+    public ListResponse<LendingResultView> createAll(@Valid @RequestBody final CreateLendingsRequest resource) {
+        final var results = lendingService.createAll(resource);
+        return new ListResponse<>(lendingViewMapper.toLendingResultView(results));
     }
 
     @Operation(summary = "Gets a specific Lending")
@@ -75,9 +106,28 @@ public class LendingController {
                 final Integer seq) {
 
         String ln = year + "/" + seq;
-        final var lending = lendingService.findByLendingNumber(ln)
-                .orElseThrow(() -> new NotFoundException(Lending.class, ln));
+        final var lendingUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .build().toUri();
+        final var lending = lendingService.findByLendingNumber(ln);
 
+        //archived lendings can no longer be changed, so they have no version
+        if (lending.isEmpty()) {
+            final var archived = lendingService.findArchivedByLendingNumber(ln)
+                    .orElseThrow(() -> new NotFoundException(Lending.class, ln));
+            checkCanView(authentication, archived.getReaderNumber());
+            return ResponseEntity.ok().location(lendingUri)
+                    .contentType(MediaType.parseMediaType("application/hal+json"))
+                    .body(lendingViewMapper.toLendingView(archived));
+        }
+
+        checkCanView(authentication, lending.get().getReaderDetails().getReaderNumber());
+        return ResponseEntity.ok().location(lendingUri)
+                .contentType(MediaType.parseMediaType("application/hal+json"))
+                .eTag(Long.toString(lending.get().getVersion()))
+                .body(lendingViewMapper.toLendingView(lending.get()));
+    }
+
+    private void checkCanView(final Authentication authentication, final String readerNumber) {
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
         //if Librarian is logged in, skip ahead
@@ -86,17 +136,10 @@ public class LendingController {
                     .orElseThrow(() -> new NotFoundException(ReaderDetails.class, loggedUser.getUsername()));
 
             //if logged Reader matches the one associated with the lending, skip ahead
-            if (!Objects.equals(loggedReaderDetails.getReaderNumber(), lending.getReaderDetails().getReaderNumber())) {
+            if (!Objects.equals(loggedReaderDetails.getReaderNumber(), readerNumber)) {
                 throw new AccessDeniedException("Reader does not have permission to view this lending");
             }
         }
-        final var lendingUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
-                .build().toUri();
-
-        return ResponseEntity.ok().location(lendingUri)
-                .contentType(MediaType.parseMediaType("application/hal+json"))
-                .eTag(Long.toString(lending.getVersion()))
-                .body(lendingViewMapper.toLendingView(lending));
     }
 
     @Operation(summary = "Sets a lending as returned")
@@ -110,6 +153,9 @@ public class LendingController {
             @PathVariable("seq")
                 @Parameter(description = "The sequential component of the Lending to find")
                 final Integer seq,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY, required = false)
+                @Parameter(description = "Key that identifies retries of the same request")
+                final String idempotencyKey,
             @Valid @RequestBody final SetLendingReturnedRequest resource) {
         final String ifMatchValue = request.getHeader(ConcurrencyService.IF_MATCH);
         if (ifMatchValue == null || ifMatchValue.isEmpty() || ifMatchValue.equals("null")) {
@@ -117,25 +163,38 @@ public class LendingController {
                     "You must issue a conditional PATCH using 'if-match'");
         }
         String ln = year + "/" + seq;
-        final var maybeLending = lendingService.findByLendingNumber(ln)
-                .orElseThrow(() -> new NotFoundException(Lending.class, ln));
+        return idempotencyService.execute(idempotencyKey, authentication.getName(),
+                "PATCH /api/lendings/" + ln + " If-Match " + ifMatchValue, resource, () -> {
+            //archived lendings are still checked, so only their reader is told they can no longer be changed
+            final String readerNumber = lendingService.findByLendingNumber(ln)
+                    .map(l -> l.getReaderDetails().getReaderNumber())
+                    .or(() -> lendingService.findArchivedByLendingNumber(ln).map(LendingSummary::getReaderNumber))
+                    .orElseThrow(() -> new NotFoundException(Lending.class, ln));
 
-        User loggedUser = userService.getAuthenticatedUser(authentication);
+            User loggedUser = userService.getAuthenticatedUser(authentication);
 
-        final var loggedReaderDetails = readerService.findByUsername(loggedUser.getUsername())
-                .orElseThrow(() -> new NotFoundException(ReaderDetails.class, loggedUser.getUsername()));
+            final var loggedReaderDetails = readerService.findByUsername(loggedUser.getUsername())
+                    .orElseThrow(() -> new NotFoundException(ReaderDetails.class, loggedUser.getUsername()));
 
-        //if logged Reader matches the one associated with the lending, skip ahead
-        if (!Objects.equals(loggedReaderDetails.getReaderNumber(), maybeLending.getReaderDetails().getReaderNumber())) {
-            throw new AccessDeniedException("Reader does not have permission to edit this lending");
-        }
+            //if logged Reader matches the one associated with the lending, skip ahead
+            if (!Objects.equals(loggedReaderDetails.getReaderNumber(), readerNumber)) {
+                throw new AccessDeniedException("Reader does not have permission to edit this lending");
+            }
 
-        final var lending = lendingService.setReturned(ln, resource, concurrencyService.getVersionFromIfMatchHeader(ifMatchValue));
+            final var lending = lendingService.setReturned(ln, resource, concurrencyService.getVersionFromIfMatchHeader(ifMatchValue));
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/hal+json"))
-                .eTag(Long.toString(lending.getVersion()))
-                .body(lendingViewMapper.toLendingView(lending));
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/hal+json"))
+                    .eTag(Long.toString(lending.getVersion()))
+                    .body(lendingViewMapper.toLendingView(lending));
+        });
+    }
+
+    @Operation(summary = "Sets several lendings as returned")
+    @PatchMapping(value = "/batch")
+    public ListResponse<LendingResultView> setLendingsReturned(@Valid @RequestBody final ReturnLendingsRequest resource) {
+        final var results = lendingService.setAllReturned(resource);
+        return new ListResponse<>(lendingViewMapper.toLendingResultView(results));
     }
 
     @Operation(summary = "Get average lendings duration")
@@ -148,17 +207,67 @@ public class LendingController {
     @Operation(summary = "Get list of overdue lendings")
     @GetMapping(value = "/overdue")
     public ListResponse<LendingView> getOverdueLendings(@Valid @RequestBody Page page) {
-        final List<Lending> overdueLendings = lendingService.getOverdue(page);
+        final List<LendingSummary> overdueLendings = lendingService.getOverdue(page);
         if(overdueLendings.isEmpty())
             throw new NotFoundException("No lendings to show");
-        return new ListResponse<>(lendingViewMapper.toLendingView(overdueLendings));
+        return new ListResponse<>(lendingViewMapper.toLendingViewFromSummaries(overdueLendings));
+    }
+
+    @Operation(summary = "Get overdue lendings, one slice at a time")
+    @GetMapping(value = "/overdue/cursor")
+    public CursorListResponse<LendingView> getOverdueLendings(
+            @RequestParam(value = "cursor", required = false)
+                @Parameter(description = "The token returned with the previous slice")
+                final String cursor,
+            @RequestParam(value = "limit", defaultValue = "10")
+                @Parameter(description = "The maximum number of lendings to return")
+                final int limit) {
+        final CursorPage<LendingSummary> overdueLendings = lendingService.getOverdue(cursor, limit);
+        return new CursorListResponse<>(lendingViewMapper.toLendingViewFromSummaries(overdueLendings.getItems()), overdueLendings.getNext());
+    }
+
+    @Operation(summary = "Get total fines accrued by overdue lendings, as of the last accrual")
+    @GetMapping(value = "/fines")
+    public ResponseEntity<FineAccrualSnapshotView> getAccruedFines() {
+        return ResponseEntity.ok().body(fineViewMapper.toFineAccrualSnapshotView(fineAccrualService.getSnapshot()));
+    }
+
+    @Operation(summary = "Get fines accrued by the overdue lendings of a Reader, as of the last accrual")
+    @GetMapping(value = "/fines/readers/{year}/{seq}")
+    public ResponseEntity<ReaderFineBalanceView> getReaderAccruedFines(
+            @PathVariable("year")
+                @Parameter(description = "The year of the Reader to find")
+                final Integer year,
+            @PathVariable("seq")
+                @Parameter(description = "The sequencial of the Reader to find")
+                final Integer seq) {
+        final String readerNumber = year + "/" + seq;
+        return ResponseEntity.ok().body(fineViewMapper.toReaderFineBalanceView(fineAccrualService.getReaderBalance(readerNumber)));
     }
 
     @PostMapping("/search")
     public ListResponse<LendingView> searchReaders(
             @RequestBody final SearchRequest<SearchLendingQuery> request) {
         final var readerList = lendingService.searchLendings(request.getPage(), request.getQuery());
-        return new ListResponse<>(lendingViewMapper.toLendingView(readerList));
+        return new ListResponse<>(lendingViewMapper.toLendingViewFromSummaries(readerList));
+    }
+
+    @Operation(summary = "Exports every Lending matching the search filters, without paging")
+    @PostMapping("/export")
+    public void exportLendings(
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            @RequestParam(value = "format", defaultValue = "ndjson")
+                @Parameter(description = "The export format, ndjson or csv")
+                final String format,
+            @RequestBody(required = false) final SearchLendingQuery query) throws IOException {
+        final LendingExportFormat exportFormat = LendingExportFormat.fromString(format);
+
+        // rows are sent as they are written, instead of being buffered to compute an ETag
+        ShallowEtagHeaderFilter.disableContentCaching(request);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        lendingService.exportLendings(query, exportFormat, response.getWriter());
     }
 
 /*    @Operation(summary = "Get list monthly average lendings per reader")
@@ -0,0 +1,17 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "The result of one item of a batch operation on Lendings")
+public class LendingResultView {
+
+    @NotNull
+    private String key;
+
+    private LendingView lending;
+
+    private String error;
+}
@@ -5,6 +5,8 @@ import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingResult;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.*;
@@ -29,5 +31,16 @@ public abstract class LendingViewMapper extends MapperInterface {
 
     public abstract List<LendingView> toLendingView(List<Lending> lendings);
 
+    @Mapping(target = "_links.self", source = "lendingNumber", qualifiedByName = "lendingNumberLink")
+    @Mapping(target = "_links.book", source = "isbn", qualifiedByName = "isbnLink")
+    @Mapping(target = "_links.reader", source = "readerNumber", qualifiedByName = "readerNumberLink")
+    public abstract LendingView toLendingView(LendingSummary lending);
+
+    public abstract List<LendingView> toLendingViewFromSummaries(List<LendingSummary> lendings);
+
+    public abstract LendingResultView toLendingResultView(LendingResult lendingResult);
+
+    public abstract List<LendingResultView> toLendingResultView(List<LendingResult> lendingResults);
+
     public abstract LendingsAverageDurationView toLendingsAverageDurationView(Double lendingsAverageDuration);
 }
@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "Fines accrued by the overdue lendings of a Reader")
+public class ReaderFineBalanceView {
+    @NotNull
+    private String readerNumber;
+
+    private long accruedCents;
+}
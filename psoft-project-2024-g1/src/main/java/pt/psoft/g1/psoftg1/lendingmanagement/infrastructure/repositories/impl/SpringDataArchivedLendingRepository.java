@@ -0,0 +1,86 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ArchivedLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ArchivedLendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface SpringDataArchivedLendingRepository extends ArchivedLendingRepository, ArchivedLendingRepoCustom, CrudRepository<ArchivedLending, String> {
+
+    @Override
+    @Query("SELECT a " +
+            "FROM ArchivedLending a " +
+            "WHERE a.lendingNumber = :lendingNumber")
+    Optional<ArchivedLending> findByLendingNumber(@Param("lendingNumber") String lendingNumber);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary(" +
+                "a.lendingNumber, a.isbn, b.title.title, a.readerNumber, a.startDate, a.limitDate, " +
+                "a.returnedDate, a.fineValuePerDayInCents) " +
+            "FROM ArchivedLending a " +
+            "LEFT JOIN Book b ON b.isbn.isbn = a.isbn " +
+            "WHERE a.lendingNumber = :lendingNumber")
+    Optional<LendingSummary> findSummaryByLendingNumber(@Param("lendingNumber") String lendingNumber);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact(" +
+                "a.lendingNumber, a.startDate, a.returnedDate, g.genre, a.isbn, a.readerNumber) " +
+            "FROM ArchivedLending a " +
+            "JOIN Book b ON b.isbn.isbn = a.isbn " +
+            "JOIN b.genre g")
+    Stream<LendingFact> streamFacts();
+}
+
+interface ArchivedLendingRepoCustom {
+    int archiveReturnedBefore(LocalDate returnedBefore, int limit);
+}
+
+@RequiredArgsConstructor
+class ArchivedLendingRepoCustomImpl implements ArchivedLendingRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public int archiveReturnedBefore(LocalDate returnedBefore, int limit) {
+        final List<Long> pks = em.createQuery(
+                        "SELECT l.pk " +
+                        "FROM Lending l " +
+                        "WHERE l.returnedDate < :returnedBefore " +
+                        "ORDER BY l.returnedDate, l.pk", Long.class)
+                .setParameter("returnedBefore", returnedBefore)
+                .setMaxResults(limit)
+                .getResultList();
+        if (pks.isEmpty())
+            return 0;
+
+        // set based, the lendings are never loaded as entities
+        em.createQuery(
+                        "INSERT INTO ArchivedLending (lendingNumber, isbn, readerNumber, startDate, limitDate, returnedDate, " +
+                                "fineValuePerDayInCents, fineCentsValue, commentary) " +
+                        "SELECT l.lendingNumber.lendingNumber, b.isbn.isbn, r.readerNumber.readerNumber, l.startDate, l.limitDate, l.returnedDate, " +
+                                "l.fineValuePerDayInCents, f.centsValue, l.commentary " +
+                        "FROM Lending l " +
+                        "JOIN l.book b " +
+                        "JOIN l.readerDetails r " +
+                        "LEFT JOIN Fine f ON f.lending = l " +
+                        "WHERE l.pk IN :pks")
+                .setParameter("pks", pks)
+                .executeUpdate();
+        em.createQuery("DELETE FROM Fine f WHERE f.lending.pk IN :pks")
+                .setParameter("pks", pks)
+                .executeUpdate();
+        em.createQuery("DELETE FROM Lending l WHERE l.pk IN :pks")
+                .setParameter("pks", pks)
+                .executeUpdate();
+        return pks.size();
+    }
+}
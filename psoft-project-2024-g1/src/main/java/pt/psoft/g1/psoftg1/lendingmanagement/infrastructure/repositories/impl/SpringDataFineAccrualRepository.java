@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SpringDataFineAccrualRepository extends FineAccrualRepository, FineAccrualRepoCustom, CrudRepository<FineAccrual, String> {
+
+    @Override
+    @Query("SELECT a " +
+            "FROM FineAccrual a " +
+            "WHERE a.lendingNumber IN :lendingNumbers")
+    List<FineAccrual> findByLendingNumberIn(@Param("lendingNumbers") Collection<String> lendingNumbers);
+}
+
+interface FineAccrualRepoCustom {
+    List<FineAccrual> findAccruedBefore(long run, int limit);
+}
+
+@RequiredArgsConstructor
+class FineAccrualRepoCustomImpl implements FineAccrualRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public List<FineAccrual> findAccruedBefore(long run, int limit) {
+        return em.createQuery(
+                        "SELECT a " +
+                        "FROM FineAccrual a " +
+                        "WHERE a.run < :run", FineAccrual.class)
+                .setParameter("run", run)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
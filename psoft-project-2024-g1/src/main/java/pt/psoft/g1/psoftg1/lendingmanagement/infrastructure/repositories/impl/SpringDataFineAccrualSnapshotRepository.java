@@ -0,0 +1,8 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.repository.CrudRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualSnapshot;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualSnapshotRepository;
+
+public interface SpringDataFineAccrualSnapshotRepository extends FineAccrualSnapshotRepository, CrudRepository<FineAccrualSnapshot, Integer> {
+}
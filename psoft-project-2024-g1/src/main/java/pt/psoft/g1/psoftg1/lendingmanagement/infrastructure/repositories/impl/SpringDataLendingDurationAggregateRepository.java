@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationAggregate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationAggregateRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface SpringDataLendingDurationAggregateRepository extends LendingDurationAggregateRepository, LendingDurationAggregateRepoCustom, CrudRepository<LendingDurationAggregate, String> {
+
+    @Override
+    @Modifying
+    @Query("UPDATE LendingDurationAggregate a " +
+            "SET a.totalDays = a.totalDays + :totalDays, " +
+                "a.returnedLendings = a.returnedLendings + :returnedLendings " +
+            "WHERE a.aggregateKey = :aggregateKey")
+    int addDurations(@Param("aggregateKey") String aggregateKey, @Param("totalDays") long totalDays,
+                     @Param("returnedLendings") long returnedLendings);
+
+    // runs in its own transaction, so a concurrent creation of the same aggregate only fails this one
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    void createAggregate(String aggregateKey);
+
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a " +
+            "FROM LendingDurationAggregate a " +
+            "ORDER BY a.aggregateKey")
+    List<LendingDurationAggregate> findAllForUpdate();
+}
+
+interface LendingDurationAggregateRepoCustom {
+    void createAggregate(String aggregateKey);
+
+    List<LendingDurationAggregate> computeFromLendings();
+}
+
+@RequiredArgsConstructor
+class LendingDurationAggregateRepoCustomImpl implements LendingDurationAggregateRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public void createAggregate(String aggregateKey) {
+        em.persist(new LendingDurationAggregate(aggregateKey, 0, 0));
+        // insert right away, so a duplicate fails here rather than on commit
+        em.flush();
+    }
+
+    @Override
+    public List<LendingDurationAggregate> computeFromLendings() {
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = em.createNativeQuery(
+                        "SELECT d.ISBN, SUM(d.DAYS), COUNT(*) " +
+                        "FROM (" +
+                            "SELECT b.ISBN AS ISBN, DATEDIFF(day, l.start_date, l.returned_date) AS DAYS " +
+                            "FROM Lending l " +
+                            "JOIN BOOK b ON l.BOOK_PK = b.PK " +
+                            "WHERE l.returned_date IS NOT NULL " +
+                            "UNION ALL " +
+                            "SELECT a.ISBN, DATEDIFF(day, a.START_DATE, a.RETURNED_DATE) " +
+                            "FROM LENDING_ARCHIVE a" +
+                        ") d " +
+                        "GROUP BY d.ISBN")
+                .getResultList();
+
+        final List<LendingDurationAggregate> aggregates = new ArrayList<>(rows.size() + 1);
+        long totalDays = 0;
+        long returnedLendings = 0;
+        for (Object[] row : rows) {
+            final long days = ((Number) row[1]).longValue();
+            final long count = ((Number) row[2]).longValue();
+            aggregates.add(new LendingDurationAggregate((String) row[0], days, count));
+            totalDays += days;
+            returnedLendings += count;
+        }
+        aggregates.add(new LendingDurationAggregate(LendingDurationAggregate.ALL, totalDays, returnedLendings));
+        return aggregates;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -14,15 +15,20 @@ import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCursor;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderAverageDto;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderLendingsAvgPerMonthDto;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface SpringDataLendingRepository extends LendingRepository, LendingRepoCustom, CrudRepository<Lending, Long> {
     @Override
@@ -31,6 +37,12 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
             "WHERE l.lendingNumber.lendingNumber = :lendingNumber")
     Optional<Lending> findByLendingNumber(String lendingNumber);
 
+    @Override
+    @Query("SELECT l " +
+            "FROM Lending l " +
+            "WHERE l.lendingNumber.lendingNumber IN :lendingNumbers")
+    List<Lending> findByLendingNumberIn(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
     //http://www.h2database.com/html/commands.html
 
     @Override
@@ -72,18 +84,46 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
             , nativeQuery = true)
     Double getAvgLendingDurationByIsbn(@Param("isbn") String isbn);
 
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact(" +
+                "l.lendingNumber.lendingNumber, l.startDate, l.returnedDate, " +
+                "g.genre, b.isbn.isbn, r.readerNumber.readerNumber) " +
+            "FROM Lending l " +
+            "JOIN l.book b " +
+            "JOIN b.genre g " +
+            "JOIN l.readerDetails r")
+    Stream<LendingFact> streamFacts();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact(" +
+                "l.lendingNumber.lendingNumber, l.startDate, l.returnedDate, " +
+                "g.genre, b.isbn.isbn, r.readerNumber.readerNumber) " +
+            "FROM Lending l " +
+            "JOIN l.book b " +
+            "JOIN b.genre g " +
+            "JOIN l.readerDetails r " +
+            "WHERE l.startDate > :date")
+    Stream<LendingFact> streamFactsStartedAfter(@Param("date") LocalDate date);
+
 
 }
 
 interface LendingRepoCustom {
     List<Lending> getOverdue(Page page);
+    List<LendingSummary> getOverdueSummaries(Page page);
+    List<LendingSummary> listSummariesByReaderNumberAndIsbn(String readerNumber, String isbn, Boolean returned, Page page);
+    CursorPage<LendingSummary> getOverdue(LendingCursor after, int limit);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    List<LendingSummary> searchLendingSummaries(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    Stream<Lending> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 //    List<ReaderAverageDto> getAverageMonthlyPerReader(LocalDate startDate, LocalDate endDate);
 
 }
 
 @RequiredArgsConstructor
 class LendingRepoCustomImpl implements LendingRepoCustom {
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     // get the underlying JPA Entity Manager via spring thru constructor dependency
     // injection
     private final EntityManager em;
@@ -113,6 +153,76 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         return q.getResultList();
     }
 
+    @Override
+    public List<LendingSummary> getOverdueSummaries(Page page)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<LendingSummary> cq = cb.createQuery(LendingSummary.class);
+        final Root<Lending> root = cq.from(Lending.class);
+        cq.select(summary(cb, root, root.join("book"), root.join("readerDetails")));
+
+        cq.where(cb.isNull(root.get("returnedDate")),
+                cb.lessThan(root.get("limitDate"), LocalDate.now()));
+        cq.orderBy(cb.asc(root.get("limitDate"))); // Order by limitDate, oldest first
+
+        final TypedQuery<LendingSummary> q = em.createQuery(cq);
+        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    @Override
+    public CursorPage<LendingSummary> getOverdue(LendingCursor after, int limit)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<Lending> root = cq.from(Lending.class);
+        final Path<LocalDate> limitDate = root.get("limitDate");
+        final Path<Long> pk = root.get("pk");
+        final List<Selection<?>> columns = new ArrayList<>(summary(cb, root, root.join("book"), root.join("readerDetails"))
+                .getCompoundSelectionItems());
+        columns.add(pk);
+        cq.multiselect(columns);
+
+        final List<Predicate> where = new ArrayList<>();
+        where.add(cb.isNull(root.get("returnedDate")));
+        where.add(cb.lessThan(limitDate, LocalDate.now()));
+
+        // continue right after the last lending of the previous slice, in (limitDate, pk) order
+        if (after != null) {
+            where.add(cb.or(cb.greaterThan(limitDate, after.getLimitDate()),
+                    cb.and(cb.equal(limitDate, after.getLimitDate()), cb.greaterThan(pk, after.getPk()))));
+        }
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(limitDate), cb.asc(pk));
+
+        // one extra row tells if there is a next slice
+        final List<Tuple> rows = em.createQuery(cq)
+                .setMaxResults(limit + 1)
+                .getResultList();
+
+        final List<LendingSummary> lendings = new ArrayList<>(Math.min(rows.size(), limit));
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            final Tuple row = rows.get(i);
+            lendings.add(new LendingSummary(row.get(0, String.class),
+                    row.get(1, String.class),
+                    row.get(2, String.class),
+                    row.get(3, String.class),
+                    row.get(4, LocalDate.class),
+                    row.get(5, LocalDate.class),
+                    row.get(6, LocalDate.class),
+                    row.get(7, Integer.class)));
+        }
+        String next = null;
+        if (rows.size() > limit) {
+            final Tuple last = rows.get(limit - 1);
+            next = new LendingCursor(last.get(5, LocalDate.class), last.get(8, Long.class)).encode();
+        }
+        return new CursorPage<>(lendings, next);
+    }
+
     public List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
         final CriteriaBuilder cb = em.getCriteriaBuilder();
         final CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
@@ -121,12 +231,124 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
         cq.select(lendingRoot);
 
+        cq.where(searchPredicates(cb, lendingRoot, bookJoin, readerDetailsJoin,
+                readerNumber, isbn, returned, startDate, endDate));
+        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+
+        final TypedQuery<Lending> q = em.createQuery(cq);
+        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    @Override
+    public List<LendingSummary> listSummariesByReaderNumberAndIsbn(String readerNumber, String isbn, Boolean returned, Page page){
+        if (archiveMayMatch(returned, null))
+            return listSummariesWithArchive(page, new SummaryFilter(readerNumber, isbn, returned, null, null, true),
+                    "u.startDate, u.lendingNumber");
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<LendingSummary> cq = cb.createQuery(LendingSummary.class);
+        final Root<Lending> lendingRoot = cq.from(Lending.class);
+        final Join<Lending, Book> bookJoin = lendingRoot.join("book");
+        final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
+        cq.select(summary(cb, lendingRoot, bookJoin, readerDetailsJoin));
+
+        final List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
+        where.add(cb.equal(bookJoin.get("isbn").get("isbn"), isbn));
+        if (returned != null){
+            if(returned){
+                where.add(cb.isNotNull(lendingRoot.get("returnedDate")));
+            }else{
+                where.add(cb.isNull(lendingRoot.get("returnedDate")));
+            }
+        }
+        cq.where(where.toArray(new Predicate[0]));
+        // follows IDX_LENDING_READER_START, the primary key keeps pages stable for lendings started on the same day
+        cq.orderBy(cb.asc(lendingRoot.get("startDate")), cb.asc(lendingRoot.get("pk")));
+
+        final TypedQuery<LendingSummary> q = em.createQuery(cq);
+        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    @Override
+    public List<LendingSummary> searchLendingSummaries(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
+        if (archiveMayMatch(returned, startDate))
+            return listSummariesWithArchive(page, new SummaryFilter(readerNumber, isbn, returned, startDate, endDate, false),
+                    "u.lendingNumber");
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<LendingSummary> cq = cb.createQuery(LendingSummary.class);
+        final Root<Lending> lendingRoot = cq.from(Lending.class);
+        final Join<Lending, Book> bookJoin = lendingRoot.join("book");
+        final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
+        cq.select(summary(cb, lendingRoot, bookJoin, readerDetailsJoin));
+
+        cq.where(searchPredicates(cb, lendingRoot, bookJoin, readerDetailsJoin,
+                readerNumber, isbn, returned, startDate, endDate));
+        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+
+        final TypedQuery<LendingSummary> q = em.createQuery(cq);
+        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+
+        return q.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<Lending> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
+        final Root<Lending> lendingRoot = cq.from(Lending.class);
+        // fetched with the lending, instead of one query per row
+        final Join<Lending, Book> bookJoin = (Join<Lending, Book>) lendingRoot.<Lending, Book>fetch("book");
+        final Join<Lending, ReaderDetails> readerDetailsJoin = (Join<Lending, ReaderDetails>) lendingRoot.<Lending, ReaderDetails>fetch("readerDetails");
+        cq.select(lendingRoot);
+
+        cq.where(searchPredicates(cb, lendingRoot, bookJoin, readerDetailsJoin,
+                readerNumber, isbn, returned, startDate, endDate));
+        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+
+        return em.createQuery(cq)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                // each lending is used once, do not keep them all in the persistence context
+                .peek(em::detach);
+    }
+
+    /**
+     * Selects the columns of a {@link LendingSummary}, so no entity is hydrated.
+     */
+    private static CompoundSelection<LendingSummary> summary(CriteriaBuilder cb, Root<Lending> lendingRoot,
+                                                              Join<Lending, Book> bookJoin, Join<Lending, ReaderDetails> readerDetailsJoin) {
+        return cb.construct(LendingSummary.class,
+                lendingRoot.get("lendingNumber").get("lendingNumber"),
+                bookJoin.get("isbn").get("isbn"),
+                bookJoin.get("title").get("title"),
+                readerDetailsJoin.get("readerNumber").get("readerNumber"),
+                lendingRoot.get("startDate"),
+                lendingRoot.get("limitDate"),
+                lendingRoot.get("returnedDate"),
+                lendingRoot.get("fineValuePerDayInCents"));
+    }
+
+    private static Predicate[] searchPredicates(CriteriaBuilder cb, Root<Lending> lendingRoot,
+                                                Join<Lending, Book> bookJoin, Join<Lending, ReaderDetails> readerDetailsJoin,
+                                                String readerNumber, String isbn, Boolean returned,
+                                                LocalDate startDate, LocalDate endDate) {
         final List<Predicate> where = new ArrayList<>();
 
         if (StringUtils.hasText(readerNumber))
-            where.add(cb.like(readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
+            where.add(likeOrEqual(cb, readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
         if (StringUtils.hasText(isbn))
-            where.add(cb.like(bookJoin.get("isbn").get("isbn"), isbn));
+            where.add(likeOrEqual(cb, bookJoin.get("isbn").get("isbn"), isbn));
         if (returned != null){
             if(returned){
                 where.add(cb.isNotNull(lendingRoot.get("returnedDate")));
@@ -139,14 +361,116 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         if(endDate!=null)
             where.add(cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate));
 
-        cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+        return where.toArray(new Predicate[0]);
+    }
 
-        final TypedQuery<Lending> q = em.createQuery(cq);
+    /**
+     * The archive only holds returned lendings that started no later than its most recent start date,
+     * so it is only read when the filters can match one of them.
+     */
+    private boolean archiveMayMatch(Boolean returned, LocalDate startDate) {
+        if (Boolean.FALSE.equals(returned))
+            return false;
+        final LocalDate latestArchived = em.createQuery(
+                        "SELECT MAX(a.startDate) FROM ArchivedLending a", LocalDate.class)
+                .getSingleResult();
+        return latestArchived != null && (startDate == null || !startDate.isAfter(latestArchived));
+    }
+
+    private List<LendingSummary> listSummariesWithArchive(Page page, SummaryFilter filter, String orderBy) {
+        // ordered outside the union, so the order applies to both sides and not only to the last one
+        final String hql =
+                "SELECT u.lendingNumber, u.isbn, u.bookTitle, u.readerNumber, u.startDate, u.limitDate, " +
+                        "u.returnedDate, u.fineValuePerDayInCents " +
+                "FROM (" +
+                "SELECT l.lendingNumber.lendingNumber AS lendingNumber, b.isbn.isbn AS isbn, b.title.title AS bookTitle, " +
+                        "r.readerNumber.readerNumber AS readerNumber, l.startDate AS startDate, l.limitDate AS limitDate, " +
+                        "l.returnedDate AS returnedDate, l.fineValuePerDayInCents AS fineValuePerDayInCents " +
+                "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN l.readerDetails r " +
+                filter.where("r.readerNumber.readerNumber", "b.isbn.isbn", "l.startDate", "l.returnedDate") +
+                " UNION ALL " +
+                "SELECT a.lendingNumber, a.isbn, b.title.title, a.readerNumber, a.startDate, a.limitDate, " +
+                        "a.returnedDate, a.fineValuePerDayInCents " +
+                "FROM ArchivedLending a " +
+                "LEFT JOIN Book b ON b.isbn.isbn = a.isbn " +
+                filter.where("a.readerNumber", "a.isbn", "a.startDate", "a.returnedDate") +
+                ") u ORDER BY " + orderBy;
+
+        final TypedQuery<Tuple> q = em.createQuery(hql, Tuple.class);
+        filter.setParameters(q);
         q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
 
-        return q.getResultList();
+        final List<LendingSummary> summaries = new ArrayList<>();
+        for (Tuple t : q.getResultList()) {
+            summaries.add(new LendingSummary(t.get(0, String.class), t.get(1, String.class), t.get(2, String.class),
+                    t.get(3, String.class), t.get(4, LocalDate.class), t.get(5, LocalDate.class), t.get(6, LocalDate.class),
+                    t.get(7, Integer.class)));
+        }
+        return summaries;
+    }
+
+    /**
+     * Same filters as {@link #searchPredicates}, written for both sides of a query over lendings and archived lendings.
+     */
+    private static final class SummaryFilter {
+        private final String readerNumber;
+        private final String isbn;
+        private final Boolean returned;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final boolean exact;
+
+        private SummaryFilter(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate, boolean exact) {
+            this.readerNumber = StringUtils.hasText(readerNumber) ? readerNumber : null;
+            this.isbn = StringUtils.hasText(isbn) ? isbn : null;
+            this.returned = returned;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.exact = exact;
+        }
+
+        private String where(String readerNumberPath, String isbnPath, String startDatePath, String returnedDatePath) {
+            final List<String> where = new ArrayList<>();
+            if (readerNumber != null)
+                where.add(readerNumberPath + operator(readerNumber) + ":readerNumber");
+            if (isbn != null)
+                where.add(isbnPath + operator(isbn) + ":isbn");
+            if (returned != null)
+                where.add(returnedDatePath + (returned ? " IS NOT NULL" : " IS NULL"));
+            if (startDate != null)
+                where.add(startDatePath + " >= :startDate");
+            if (endDate != null)
+                where.add(startDatePath + " <= :endDate");
+            return where.isEmpty() ? "" : "WHERE " + String.join(" AND ", where);
+        }
+
+        private String operator(String value) {
+            return exact || (value.indexOf('%') < 0 && value.indexOf('_') < 0) ? " = " : " LIKE ";
+        }
+
+        private void setParameters(TypedQuery<?> q) {
+            if (readerNumber != null)
+                q.setParameter("readerNumber", readerNumber);
+            if (isbn != null)
+                q.setParameter("isbn", isbn);
+            if (startDate != null)
+                q.setParameter("startDate", startDate);
+            if (endDate != null)
+                q.setParameter("endDate", endDate);
+        }
+    }
+
+    /**
+     * Exact identifiers are matched with equality, which the database can resolve with an index lookup.
+     * Only values with LIKE wildcards ({@code %} or {@code _}) are matched as patterns.
+     */
+    private static Predicate likeOrEqual(CriteriaBuilder cb, Expression<String> path, String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('_') < 0)
+            return cb.equal(path, value);
+        return cb.like(path, value);
     }
 
 /*
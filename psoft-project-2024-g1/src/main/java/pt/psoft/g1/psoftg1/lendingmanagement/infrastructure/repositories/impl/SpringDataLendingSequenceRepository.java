@@ -0,0 +1,58 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingSequence;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingSequenceRepository;
+
+public interface SpringDataLendingSequenceRepository extends LendingSequenceRepository, LendingSequenceRepoCustom, CrudRepository<LendingSequence, Integer> {
+
+    // runs in its own transaction so the row lock is released as soon as the block is reserved
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    int reserveBlock(int year, int blockSize);
+}
+
+interface LendingSequenceRepoCustom {
+    int reserveBlock(int year, int blockSize);
+}
+
+@RequiredArgsConstructor
+class LendingSequenceRepoCustomImpl implements LendingSequenceRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public int reserveBlock(int year, int blockSize) {
+        LendingSequence sequence = em.find(LendingSequence.class, year, LockModeType.PESSIMISTIC_WRITE);
+        if (sequence == null) {
+            sequence = new LendingSequence(year, getHighestSequential(year) + 1);
+            em.persist(sequence);
+        }
+        return sequence.reserve(blockSize);
+    }
+
+    /**
+     * Seeds a new year from the lendings already stored, so numbers assigned before the
+     * sequence existed (e.g. bootstrapped data) are never handed out again.
+     */
+    private int getHighestSequential(int year) {
+        final Integer max = em.createQuery(
+                        "SELECT MAX(CAST(SUBSTRING(l.lendingNumber.lendingNumber, 6) AS Integer)) " +
+                        "FROM Lending l " +
+                        "WHERE l.lendingNumber.lendingNumber LIKE :prefix", Integer.class)
+                .setParameter("prefix", year + "/%")
+                .getSingleResult();
+        // archived lendings keep their numbers
+        final Integer maxArchived = em.createQuery(
+                        "SELECT MAX(CAST(SUBSTRING(a.lendingNumber, 6) AS Integer)) " +
+                        "FROM ArchivedLending a " +
+                        "WHERE a.lendingNumber LIKE :prefix", Integer.class)
+                .setParameter("prefix", year + "/%")
+                .getSingleResult();
+        return Math.max(max == null ? 0 : max, maxArchived == null ? 0 : maxArchived);
+    }
+}
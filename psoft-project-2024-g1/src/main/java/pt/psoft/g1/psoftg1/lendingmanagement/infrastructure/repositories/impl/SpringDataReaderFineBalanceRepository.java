@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineBalance;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderFineBalanceRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SpringDataReaderFineBalanceRepository extends ReaderFineBalanceRepository, CrudRepository<ReaderFineBalance, String> {
+
+    @Override
+    @Query("SELECT b " +
+            "FROM ReaderFineBalance b " +
+            "WHERE b.readerNumber = :readerNumber")
+    Optional<ReaderFineBalance> findByReaderNumber(@Param("readerNumber") String readerNumber);
+
+    @Override
+    @Query("SELECT b " +
+            "FROM ReaderFineBalance b " +
+            "WHERE b.readerNumber IN :readerNumbers")
+    List<ReaderFineBalance> findByReaderNumberIn(@Param("readerNumbers") Collection<String> readerNumbers);
+}
@@ -0,0 +1,57 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingLedger;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderLendingLedgerRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface SpringDataReaderLendingLedgerRepository extends ReaderLendingLedgerRepository, ReaderLendingLedgerRepoCustom, CrudRepository<ReaderLendingLedger, String> {
+
+    @Override
+    @Query("SELECT MIN(l.limitDate) " +
+            "FROM Lending l " +
+            "WHERE l.readerDetails.readerNumber.readerNumber = :readerNumber " +
+                "AND l.returnedDate IS NULL")
+    Optional<LocalDate> findEarliestOutstandingLimitDate(@Param("readerNumber") String readerNumber);
+}
+
+interface ReaderLendingLedgerRepoCustom {
+    ReaderLendingLedger findByReaderNumberForUpdate(String readerNumber);
+}
+
+@RequiredArgsConstructor
+class ReaderLendingLedgerRepoCustomImpl implements ReaderLendingLedgerRepoCustom {
+    private final EntityManager em;
+
+    @Override
+    public ReaderLendingLedger findByReaderNumberForUpdate(String readerNumber) {
+        final ReaderLendingLedger ledger = em.find(ReaderLendingLedger.class, readerNumber, LockModeType.PESSIMISTIC_WRITE);
+        if (ledger != null)
+            return ledger;
+
+        // scalar aggregate only, outstanding lendings are never loaded as entities
+        final Tuple summary = em.createQuery(
+                        "SELECT COUNT(l) AS outstanding, MIN(l.limitDate) AS earliestLimitDate " +
+                        "FROM Lending l " +
+                        "WHERE l.readerDetails.readerNumber.readerNumber = :readerNumber " +
+                            "AND l.returnedDate IS NULL", Tuple.class)
+                .setParameter("readerNumber", readerNumber)
+                .getSingleResult();
+
+        final ReaderLendingLedger newLedger = new ReaderLendingLedger(readerNumber,
+                summary.get("outstanding", Long.class).intValue(),
+                summary.get("earliestLimitDate", LocalDate.class));
+        em.persist(newLedger);
+        // insert right away, so the row exists to be locked again later in this transaction
+        em.flush();
+        return newLedger;
+    }
+}
@@ -0,0 +1,55 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * The {@code ArchivedLending} class keeps a returned {@code Lending} that has been moved out of the operational
+ * lendings by the archive job, once it was returned longer ago than the archive horizon.
+ * <p>Book and reader are referenced by ISBN and {@code ReaderNumber}, so the lending no longer holds
+ * references to other entities. Its fine, if any, is kept as a value.
+ * <p>It is identified by its {@code LendingNumber}.
+ */
+@Getter
+@Entity
+@Table(name = "LENDING_ARCHIVE", indexes = {
+        @Index(name = "IDX_LENDING_ARCHIVE_READER_START", columnList = "READER_NUMBER, START_DATE"),
+        @Index(name = "IDX_LENDING_ARCHIVE_ISBN_START", columnList = "ISBN, START_DATE"),
+        @Index(name = "IDX_LENDING_ARCHIVE_START", columnList = "START_DATE")})
+public class ArchivedLending {
+
+    @Id
+    @Column(length = 32)
+    private String lendingNumber;
+
+    @Column(nullable = false, length = 16)
+    private String isbn;
+
+    @Column(nullable = false, length = 32)
+    private String readerNumber;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.DATE)
+    private LocalDate startDate;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.DATE)
+    private LocalDate limitDate;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.DATE)
+    private LocalDate returnedDate;
+
+    private int fineValuePerDayInCents;
+
+    /**Value of the fine applied on return, in Euro cents, or {@code null} if it was returned on time*/
+    private Integer fineCentsValue;
+
+    @Column(length = 1024)
+    private String commentary;
+
+    /**Protected empty constructor for ORM only, archived lendings are only written by the archive job.*/
+    protected ArchivedLending() {}
+}
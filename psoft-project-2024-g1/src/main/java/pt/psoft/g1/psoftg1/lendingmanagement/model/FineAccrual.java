@@ -0,0 +1,61 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+
+/**
+ * The {@code FineAccrual} class keeps the fine accrued so far by an open, overdue {@code Lending}.
+ * <p>It is refreshed by the fine accrual job and removed once the lending is no longer open and overdue,
+ * at which point the fine is settled as a {@code Fine} on return.
+ * <p>It is identified by the {@code LendingNumber} of its lending.
+ */
+@Getter
+@Entity
+@Table(name = "FINE_ACCRUAL", indexes = {
+        @Index(name = "IDX_FINE_ACCRUAL_RUN", columnList = "RUN")})
+public class FineAccrual {
+
+    @Id
+    @Column(length = 32)
+    private String lendingNumber;
+
+    @Column(nullable = false, length = 32)
+    private String readerNumber;
+
+    @Version
+    private Long version;
+
+    /**Accrued fine value in Euro cents*/
+    @PositiveOrZero
+    private int accruedCents;
+
+    /**
+     * Last accrual run that found the lending still open and overdue.
+     * */
+    private long run;
+
+    public FineAccrual(String lendingNumber, String readerNumber) {
+        if(lendingNumber == null || readerNumber == null)
+            throw new IllegalArgumentException("Lending number and reader number cannot be null");
+        this.lendingNumber = lendingNumber;
+        this.readerNumber = readerNumber;
+        this.accruedCents = 0;
+    }
+
+    /**
+     * Updates the accrued value.
+     * @param   centsValue  current fine value of the lending, in Euro cents.
+     * @param   run         current accrual run.
+     * @return  difference between the new and the previously accrued value.
+     * */
+    public int accrue(int centsValue, long run) {
+        final int delta = centsValue - this.accruedCents;
+        this.accruedCents = centsValue;
+        this.run = run;
+        return delta;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected FineAccrual() {}
+}
@@ -0,0 +1,59 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * The {@code FineAccrualSnapshot} class keeps the total fine accrued by all open, overdue lendings,
+ * as of the last fine accrual run.
+ * <p>There is a single instance, identified by {@link #ID}.
+ */
+@Getter
+@Entity
+@Table(name = "FINE_ACCRUAL_SNAPSHOT")
+public class FineAccrualSnapshot {
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    @Version
+    private Long version;
+
+    /**Total accrued fine value in Euro cents*/
+    private long totalCents;
+
+    /**
+     * Last accrual run, 0 if there was none yet.
+     * */
+    private long run;
+
+    /**
+     * Day of the accrual run this snapshot reflects, {@code null} if there was none yet.
+     * */
+    @Temporal(TemporalType.DATE)
+    private LocalDate accruedOn;
+
+    public static FineAccrualSnapshot empty() {
+        final FineAccrualSnapshot snapshot = new FineAccrualSnapshot();
+        snapshot.id = ID;
+        return snapshot;
+    }
+
+    /**
+     * Adds the change of the accrued fines made by part of a run, in the same transaction as that change.
+     */
+    public void addToTotal(long deltaCents) {
+        this.totalCents += deltaCents;
+    }
+
+    public void update(long run, LocalDate accruedOn) {
+        this.run = run;
+        this.accruedOn = accruedOn;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected FineAccrualSnapshot() {}
+}
@@ -25,7 +25,11 @@ import java.util.Optional;
  * @author  rmfranca*/
 @Entity
 @Table(uniqueConstraints = {
-        @UniqueConstraint(columnNames={"LENDING_NUMBER"})})
+        @UniqueConstraint(columnNames={"LENDING_NUMBER"})},
+        indexes = {
+        @Index(name = "IDX_LENDING_RETURNED_LIMIT", columnList = "RETURNED_DATE, LIMIT_DATE, PK"),
+        @Index(name = "IDX_LENDING_READER_START", columnList = "READER_DETAILS_PK, START_DATE"),
+        @Index(name = "IDX_LENDING_BOOK_START", columnList = "BOOK_PK, START_DATE")})
 public class Lending {
 
     /**
@@ -106,6 +110,7 @@ public class Lending {
      * */
     @Size(min = 0, max = 1024)
     @Column(length = 1024)
+    @Getter
     private String commentary = null;
 
     @Transient
@@ -130,13 +135,28 @@ public class Lending {
      * @throws      NullPointerException if any of the arguments is {@code null}
      * */
     public Lending(Book book, ReaderDetails readerDetails, int seq, int lendingDuration, int fineValuePerDayInCents){
+        this(book, readerDetails, new LendingNumber(seq), lendingDuration, fineValuePerDayInCents);
+    }
+
+    /**
+     * Constructs a new {@code Lending} object to be persisted in the database, identified by an already
+     * allocated {@code LendingNumber}.
+     *
+     * @param       book {@code Book} object, which should be retrieved from the database.
+     * @param       readerDetails {@code Reader} object, which should be retrieved from the database.
+     * @param       lendingNumber lending number, which should be obtained from {@code LendingNumberAllocator}.
+     * @throws      IllegalArgumentException if any of the arguments is {@code null}
+     * */
+    public Lending(Book book, ReaderDetails readerDetails, LendingNumber lendingNumber, int lendingDuration, int fineValuePerDayInCents){
         try {
             this.book = Objects.requireNonNull(book);
             this.readerDetails = Objects.requireNonNull(readerDetails);
         }catch (NullPointerException e){
             throw new IllegalArgumentException("Null objects passed to lending");
         }
-        this.lendingNumber = new LendingNumber(seq);
+        if(lendingNumber == null)
+            throw new IllegalArgumentException("Null lending number passed to lending");
+        this.lendingNumber = lendingNumber;
         this.startDate = LocalDate.now();
         this.limitDate = LocalDate.now().plusDays(lendingDuration);
         this.returnedDate = null;
@@ -0,0 +1,58 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+/**
+ * The {@code LendingDurationAggregate} class keeps the running sum and count of the durations of returned lendings.
+ * <p>There is one aggregate per {@code Book}, identified by its ISBN, and one over all lendings,
+ * identified by {@link LendingDurationAggregate#ALL}, so average durations never have to scan the lendings.
+ */
+@Getter
+@Entity
+@Table(name = "LENDING_DURATION_AGGREGATE")
+public class LendingDurationAggregate {
+
+    /**Key of the aggregate over the lendings of all books.*/
+    public static final String ALL = "ALL";
+
+    @Id
+    @Column(length = 16)
+    private String aggregateKey;
+
+    /**Sum of the durations, in days, of the returned lendings*/
+    private long totalDays;
+
+    /**Number of returned lendings*/
+    private long returnedLendings;
+
+    /**
+     * Constructs a new {@code LendingDurationAggregate}.
+     * @param   aggregateKey        ISBN of the book, or {@link LendingDurationAggregate#ALL}.
+     * @param   totalDays           sum of the durations of the returned lendings.
+     * @param   returnedLendings    number of returned lendings.
+     * */
+    public LendingDurationAggregate(String aggregateKey, long totalDays, long returnedLendings) {
+        if(aggregateKey == null)
+            throw new IllegalArgumentException("Aggregate key cannot be null");
+        this.aggregateKey = aggregateKey;
+        reset(totalDays, returnedLendings);
+    }
+
+    public void reset(long totalDays, long returnedLendings) {
+        if(returnedLendings < 0)
+            throw new IllegalArgumentException("Returned lendings cannot be negative");
+        this.totalDays = totalDays;
+        this.returnedLendings = returnedLendings;
+    }
+
+    /**
+     * @return the average duration of the returned lendings, or {@code null} if there are none
+     * */
+    public Double getAverageDays() {
+        return returnedLendings == 0 ? null : (double) totalDays / returnedLendings;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected LendingDurationAggregate() {}
+}
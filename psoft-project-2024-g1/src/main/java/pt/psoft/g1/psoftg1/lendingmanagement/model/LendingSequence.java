@@ -0,0 +1,64 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+/**
+ * The {@code LendingSequence} class stores, for a given year, the next sequential component
+ * of {@code LendingNumber} that has not yet been reserved.
+ * <p>
+ * Sequential numbers are reserved in blocks, so this row is only updated once per block
+ * and not once per {@code Lending}.
+ */
+@Entity
+@Table(name = "LENDING_SEQUENCE")
+public class LendingSequence {
+
+    /**
+     * Year component of the {@code LendingNumber}s handed out by this sequence.
+     */
+    @Id
+    @Column(name = "SEQUENCE_YEAR")
+    @Getter
+    private int year;
+
+    /**
+     * First sequential number that is still free to be reserved.
+     */
+    @Column(nullable = false)
+    @Getter
+    private int nextValue;
+
+    /**
+     * Constructs a new {@code LendingSequence} for the given year.
+     * @param   year        Year component of the {@code LendingNumber}
+     * @param   nextValue   First sequential number available for this year
+     * */
+    public LendingSequence(int year, int nextValue) {
+        if(year < 1970)
+            throw new IllegalArgumentException("Invalid year component");
+        if(nextValue < 0)
+            throw new IllegalArgumentException("Sequential component cannot be negative");
+        this.year = year;
+        this.nextValue = nextValue;
+    }
+
+    /**
+     * Reserves {@code blockSize} consecutive sequential numbers.
+     * @param   blockSize   amount of numbers to reserve
+     * @return  the first number of the reserved block
+     * */
+    public int reserve(int blockSize) {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive");
+        final int first = this.nextValue;
+        this.nextValue += blockSize;
+        return first;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected LendingSequence() {}
+}
@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+/**
+ * The {@code ReaderFineBalance} class keeps the total fine accrued by the open, overdue lendings of a reader.
+ * <p>It is identified by the {@code ReaderNumber} of its reader.
+ */
+@Getter
+@Entity
+@Table(name = "READER_FINE_BALANCE")
+public class ReaderFineBalance {
+
+    @Id
+    @Column(length = 32)
+    private String readerNumber;
+
+    @Version
+    private Long version;
+
+    /**Accrued fine value in Euro cents*/
+    private long accruedCents;
+
+    public ReaderFineBalance(String readerNumber) {
+        if(readerNumber == null)
+            throw new IllegalArgumentException("Reader number cannot be null");
+        this.readerNumber = readerNumber;
+        this.accruedCents = 0;
+    }
+
+    public void add(long deltaCents) {
+        this.accruedCents += deltaCents;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected ReaderFineBalance() {}
+}
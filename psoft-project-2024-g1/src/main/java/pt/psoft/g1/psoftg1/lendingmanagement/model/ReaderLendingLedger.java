@@ -0,0 +1,101 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+
+import java.time.LocalDate;
+
+/**
+ * The {@code ReaderLendingLedger} class keeps a compact summary of a reader's outstanding lendings.
+ * <p>It stores how many lendings are not yet returned and the earliest limit date among them,
+ * which is all the information needed to decide if a new {@code Lending} can be created.
+ * <p>It is identified by the {@code ReaderNumber} of its reader.
+ */
+@Entity
+@Table(name = "READER_LENDING_LEDGER")
+public class ReaderLendingLedger {
+
+    @Id
+    @Column(length = 32)
+    @Getter
+    private String readerNumber;
+
+    /**
+     * Number of lendings of this reader that have not been returned.
+     * */
+    @PositiveOrZero
+    @Getter
+    private int outstanding;
+
+    /**
+     * Earliest limit date among the outstanding lendings, {@code null} if there are none.
+     * */
+    @Temporal(TemporalType.DATE)
+    @Getter
+    private LocalDate earliestLimitDate;
+
+    /**
+     * Constructs a new {@code ReaderLendingLedger} from the current state of the reader's lendings.
+     * @param   readerNumber        {@code ReaderNumber} of the reader.
+     * @param   outstanding         number of lendings not yet returned.
+     * @param   earliestLimitDate   earliest limit date of those lendings, or {@code null} if there are none.
+     * */
+    public ReaderLendingLedger(String readerNumber, int outstanding, LocalDate earliestLimitDate) {
+        if(readerNumber == null)
+            throw new IllegalArgumentException("Reader number cannot be null");
+        if(outstanding < 0)
+            throw new IllegalArgumentException("Outstanding lendings cannot be negative");
+        this.readerNumber = readerNumber;
+        this.outstanding = outstanding;
+        this.earliestLimitDate = outstanding == 0 ? null : earliestLimitDate;
+    }
+
+    /**
+     * Applies the lending business rules to this reader.
+     * @param   today               current date.
+     * @param   maxOutstanding      maximum number of books a reader can have outstanding.
+     * @throws  LendingForbiddenException if the reader has a book past its due date, or has reached {@code maxOutstanding}.
+     * */
+    public void ensureCanLend(LocalDate today, int maxOutstanding) {
+        //Business rule: cannot create a lending if user has late outstanding books to return.
+        if(earliestLimitDate != null && earliestLimitDate.isBefore(today))
+            throw new LendingForbiddenException("Reader has book(s) past their due date");
+        //Business rule: cannot create a lending if user already has the maximum outstanding books to return.
+        if(outstanding >= maxOutstanding)
+            throw new LendingForbiddenException("Reader has three books outstanding already");
+    }
+
+    /**
+     * Registers a new outstanding lending.
+     * @param   limitDate   limit date of the new {@code Lending}.
+     * */
+    public void registerLending(LocalDate limitDate) {
+        this.outstanding++;
+        if(earliestLimitDate == null || limitDate.isBefore(earliestLimitDate))
+            this.earliestLimitDate = limitDate;
+    }
+
+    /**
+     * Registers the return of an outstanding lending.
+     * @param   limitDate   limit date of the returned {@code Lending}.
+     * @return  {@code true} if the earliest limit date is no longer known and must be recomputed with
+     * {@link ReaderLendingLedger#setEarliestLimitDate(LocalDate)}.
+     * */
+    public boolean registerReturn(LocalDate limitDate) {
+        this.outstanding = Math.max(outstanding - 1, 0);
+        if(outstanding == 0) {
+            this.earliestLimitDate = null;
+            return false;
+        }
+        return limitDate.equals(earliestLimitDate);
+    }
+
+    public void setEarliestLimitDate(LocalDate earliestLimitDate) {
+        this.earliestLimitDate = outstanding == 0 ? null : earliestLimitDate;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected ReaderLendingLedger() {}
+}
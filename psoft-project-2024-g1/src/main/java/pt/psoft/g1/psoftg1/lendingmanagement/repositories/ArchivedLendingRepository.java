@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ArchivedLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface ArchivedLendingRepository {
+    Optional<ArchivedLending> findByLendingNumber(String lendingNumber);
+
+    /**
+     * @param lendingNumber - Lending Number of the archived lending
+     * @return the archived lending as presented, with the title of its book if the book still exists
+     */
+    Optional<LendingSummary> findSummaryByLendingNumber(String lendingNumber);
+
+    /**
+     * Moves lendings returned before {@code returnedBefore}, with their fines, to the archive.
+     * @param returnedBefore - lendings returned on this date or later are kept
+     * @param limit          - maximum number of lendings to move
+     * @return number of lendings moved, less than {@code limit} once there are none left to move
+     */
+    int archiveReturnedBefore(LocalDate returnedBefore, int limit);
+
+    /**
+     * All archived lendings of books that still exist, as the values statistics are computed from.
+     * It must be consumed, and closed, within a transaction.
+     */
+    Stream<LendingFact> streamFacts();
+}
@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface FineAccrualRepository {
+    List<FineAccrual> findByLendingNumberIn(Collection<String> lendingNumbers);
+
+    /**
+     * @param run   - current accrual run
+     * @param limit - maximum number of accruals to return
+     * @return accruals whose lending was not found open and overdue by {@code run}
+     */
+    List<FineAccrual> findAccruedBefore(long run, int limit);
+
+    FineAccrual save(FineAccrual fineAccrual);
+    void delete(FineAccrual fineAccrual);
+}
@@ -0,0 +1,11 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualSnapshot;
+
+import java.util.Optional;
+
+public interface FineAccrualSnapshotRepository {
+    Optional<FineAccrualSnapshot> findById(Integer id);
+
+    FineAccrualSnapshot save(FineAccrualSnapshot snapshot);
+}
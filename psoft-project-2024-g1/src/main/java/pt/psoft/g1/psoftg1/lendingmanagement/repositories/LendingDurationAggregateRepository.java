@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationAggregate;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface LendingDurationAggregateRepository {
+    Optional<LendingDurationAggregate> findByAggregateKey(String aggregateKey);
+
+    /**
+     * Adds to an aggregate with a single update, that reads and writes it at once.
+     * @param aggregateKey - ISBN of the book, or {@link LendingDurationAggregate#ALL}
+     * @return the number of aggregates updated, {@code 0} if the aggregate does not exist yet
+     */
+    int addDurations(String aggregateKey, long totalDays, long returnedLendings);
+
+    /**
+     * Creates an empty aggregate, in a transaction of its own.
+     * @param aggregateKey - ISBN of the book, or {@link LendingDurationAggregate#ALL}
+     * @throws org.springframework.dao.DataIntegrityViolationException if the aggregate already exists
+     */
+    void createAggregate(String aggregateKey);
+
+    /**
+     * Loads every aggregate, in key order, and locks them until the end of the current transaction.
+     * @return the locked aggregates
+     */
+    List<LendingDurationAggregate> findAllForUpdate();
+
+    /**
+     * Computes the aggregates of every book with returned lendings, and the aggregate over all of them,
+     * straight from the lendings. The returned aggregates are not persisted.
+     * @return the computed aggregates
+     */
+    List<LendingDurationAggregate> computeFromLendings();
+
+    Iterable<LendingDurationAggregate> findAll();
+
+    LendingDurationAggregate save(LendingDurationAggregate aggregate);
+}
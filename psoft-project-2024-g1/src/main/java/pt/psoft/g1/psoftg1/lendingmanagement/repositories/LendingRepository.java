@@ -1,15 +1,30 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCursor;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFact;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface LendingRepository {
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    List<Lending> findByLendingNumberIn(Collection<String> lendingNumbers);
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn);
+    /**
+     * @param readerNumber - Reader Number of the reader
+     * @param isbn         - ISBN of the book
+     * @param returned     - only returned lendings if {@code true}, only outstanding ones if {@code false}, all if {@code null}
+     * @param page         - page of results to return
+     * @return the reader's lendings of the book, oldest first
+     */
+    List<LendingSummary> listSummariesByReaderNumberAndIsbn(String readerNumber, String isbn, Boolean returned, Page page);
     int getCountFromCurrentYear();
     List<Lending> listOutstandingByReaderNumber(String readerNumber);
     Double getAverageDuration();
@@ -17,7 +32,29 @@ public interface LendingRepository {
 
 
     List<Lending> getOverdue(Page page);
+    List<LendingSummary> getOverdueSummaries(Page page);
+    /**
+     * @param after - position of the last lending of the previous slice, or {@code null} for the first one
+     * @param limit - maximum number of lendings to return
+     * @return overdue lendings ordered by limit date, oldest first
+     */
+    CursorPage<LendingSummary> getOverdue(LendingCursor after, int limit);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    List<LendingSummary> searchLendingSummaries(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    /**
+     * Same filters as {@link #searchLendings}, without paging. Lendings are read from the database as the
+     * stream is consumed, so it must be consumed, and closed, within a transaction.
+     */
+    Stream<Lending> streamLendings(String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    /**
+     * All lendings, as the values statistics are computed from. Like {@link #streamLendings}, it must be consumed,
+     * and closed, within a transaction.
+     */
+    Stream<LendingFact> streamFacts();
+    /**
+     * Same as {@link #streamFacts()}, for the lendings started after {@code date}.
+     */
+    Stream<LendingFact> streamFactsStartedAfter(LocalDate date);
 
     Lending save(Lending lending);
 
@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+public interface LendingSequenceRepository {
+    /**
+     * Atomically reserves {@code blockSize} consecutive sequential numbers for the given year.
+     * <p>
+     * The first reservation of a year starts right after the highest sequential number
+     * already used by a {@code Lending} of that year.
+     * @param year      - Year component of the lending numbers
+     * @param blockSize - Amount of sequential numbers to reserve
+     * @return the first sequential number of the reserved block
+     */
+    int reserveBlock(int year, int blockSize);
+}
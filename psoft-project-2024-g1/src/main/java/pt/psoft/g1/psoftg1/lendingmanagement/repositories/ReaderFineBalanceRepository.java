@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineBalance;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReaderFineBalanceRepository {
+    Optional<ReaderFineBalance> findByReaderNumber(String readerNumber);
+    List<ReaderFineBalance> findByReaderNumberIn(Collection<String> readerNumbers);
+
+    ReaderFineBalance save(ReaderFineBalance readerFineBalance);
+}
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingLedger;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface ReaderLendingLedgerRepository {
+    /**
+     * Loads the ledger of a reader and locks it until the end of the current transaction.
+     * If the reader has no ledger yet, it is built from the reader's outstanding lendings.
+     * @param readerNumber - Reader Number of the reader
+     * @return the locked {@code ReaderLendingLedger}
+     */
+    ReaderLendingLedger findByReaderNumberForUpdate(String readerNumber);
+
+    /**
+     * @param readerNumber - Reader Number of the reader
+     * @return the earliest limit date of the reader's outstanding lendings
+     */
+    Optional<LocalDate> findEarliestOutstandingLimitDate(String readerNumber);
+
+    ReaderLendingLedger save(ReaderLendingLedger ledger);
+}
@@ -0,0 +1,174 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Number of lendings started each day of the last {@value #DAYS} days, per book, that the most lent books are ranked by.
+ * <p>
+ * The counts of a book are a ring of daily buckets, indexed by epoch day modulo {@value #DAYS}.
+ * A bucket expires once the ring wraps around to its day again: the buckets of the days since the last lending
+ * of a book are emptied when its next lending is counted, and ignored until then.
+ * Books without lendings in the ring are dropped as days pass.
+ * The most lent books are selected with a heap of the requested size, so ranking takes a single pass over the books.
+ * <p>
+ * The leaderboard is loaded once the application is ready, and lendings created are counted as their transaction
+ * commits. Returning or archiving a lending does not change its start date, so it is not counted again.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookLendingLeaderboard {
+    /** Days kept, enough for any period up to a year, leap years included. */
+    public static final int DAYS = 366;
+
+    private final LendingRepository lendingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Counts> books = new HashMap<>();
+    // latest day a lending was counted for, and the lendings counted for it, as they can be both loaded and created
+    private int lastDay = Integer.MIN_VALUE;
+    private final Set<String> lastDayLendings = new HashSet<>();
+
+    /**
+     * Loads the lendings started in the last {@value #DAYS} days from the database, replacing the current counts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            lastDay = Integer.MIN_VALUE;
+            lastDayLendings.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<LendingFact> facts = lendingRepository.streamFactsStartedAfter(LocalDate.now().minusDays(DAYS))) {
+                    facts.forEach(this::count);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // before the cached statistics are dropped, so they are not computed again from the old counts
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLendingsCreated(LendingsCreatedEvent event) {
+        countAll(event.getLendings());
+    }
+
+    /**
+     * @param limit - maximum number of books to return
+     * @param after - lendings started on this day are not counted, nor before it
+     * @param today - last day whose lendings are counted
+     * @return ISBN of the books with the most lendings started after {@code after} and up to {@code today},
+     * with their number of lendings, most lendings first
+     */
+    public List<Map.Entry<String, Long>> top(int limit, LocalDate after, LocalDate today) {
+        final int to = day(today);
+        final int from = Math.max(day(after) + 1, to - DAYS + 1);
+        if (limit < 1 || from > to)
+            return List.of();
+
+        final Comparator<Map.Entry<String, Long>> mostLent = Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        lock.readLock().lock();
+        try {
+            // the least lent of the books kept is on top, to be replaced by a book lent more
+            final PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(limit + 1, mostLent.reversed());
+            for (Map.Entry<String, Counts> book : books.entrySet()) {
+                final long count = book.getValue().sum(from, to);
+                if (count == 0)
+                    continue;
+                if (heap.size() < limit) {
+                    heap.add(Map.entry(book.getKey(), count));
+                } else if (mostLent.compare(Map.entry(book.getKey(), count), heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(Map.entry(book.getKey(), count));
+                }
+            }
+            final List<Map.Entry<String, Long>> result = new ArrayList<>(heap);
+            result.sort(mostLent);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void countAll(Collection<LendingFact> facts) {
+        lock.writeLock().lock();
+        try {
+            facts.forEach(this::count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void count(LendingFact fact) {
+        final int day = day(fact.getStartDate());
+        if (day > lastDay) {
+            dropExpired(day);
+            lastDay = day;
+            lastDayLendings.clear();
+        }
+        if (day == lastDay && !lastDayLendings.add(fact.getLendingNumber()))
+            return;
+        books.computeIfAbsent(fact.getIsbn(), isbn -> new Counts()).add(day);
+    }
+
+    private void dropExpired(int today) {
+        books.values().removeIf(counts -> counts.lastDay <= today - DAYS);
+    }
+
+    private static int day(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    /**
+     * Lendings of a book per day, for the {@value #DAYS} days up to the last day a lending was counted.
+     */
+    private static final class Counts {
+        private final int[] buckets = new int[DAYS];
+        private int lastDay = Integer.MIN_VALUE;
+
+        private void add(int day) {
+            if (day > lastDay) {
+                if (lastDay == Integer.MIN_VALUE || day - lastDay >= DAYS) {
+                    Arrays.fill(buckets, 0);
+                } else {
+                    for (int d = lastDay + 1; d <= day; d++) {
+                        buckets[Math.floorMod(d, DAYS)] = 0;
+                    }
+                }
+                lastDay = day;
+            } else if (day <= lastDay - DAYS) {
+                // older than the ring
+                return;
+            }
+            buckets[Math.floorMod(day, DAYS)]++;
+        }
+
+        private long sum(int from, int to) {
+            // buckets after the last day, or before the ring, were not emptied yet
+            final int last = Math.min(to, lastDay);
+            long sum = 0;
+            for (int d = Math.max(from, lastDay - DAYS + 1); d <= last; d++) {
+                sum += buckets[Math.floorMod(d, DAYS)];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A DTO for creating several Lendings for the same Reader")
+public class CreateLendingsRequest {
+    @NotNull
+    @NotBlank
+    @Size(min = 6, max = 16)
+    private String readerNumber;
+
+    @NotNull
+    @NotEmpty
+    @Size(max = 100)
+    private List<@NotBlank @Size(min = 10, max = 13) String> isbns;
+}
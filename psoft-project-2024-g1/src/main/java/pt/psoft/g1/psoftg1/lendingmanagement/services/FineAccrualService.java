@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualSnapshot;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineBalance;
+
+public interface FineAccrualService {
+    /**
+     * Brings the accrued fines of all open, overdue lendings up to date.
+     * @return the resulting {@code FineAccrualSnapshot}
+     */
+    FineAccrualSnapshot accrue();
+
+    /**
+     * @return the total accrued fines as of the last accrual run
+     */
+    FineAccrualSnapshot getSnapshot();
+
+    /**
+     * @param readerNumber - Reader Number of the reader
+     * @return the reader's accrued fines as of the last accrual run
+     */
+    ReaderFineBalance getReaderBalance(String readerNumber);
+}
@@ -0,0 +1,166 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrual;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.FineAccrualSnapshot;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderFineBalance;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualSnapshotRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderFineBalanceRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Keeps a materialized snapshot of the fines accrued by open, overdue lendings.
+ * <p>
+ * Each run walks the overdue lendings in chunks, each chunk in its own transaction, and only applies the
+ * difference to what was accrued before. Accruals whose lending was not found overdue in this run are then
+ * released. Each chunk adds its difference to the snapshot total in its own transaction, so the total stays the sum
+ * of the reader balances even when a run fails halfway, and the next run carries on from there.
+ * Readers of the snapshot never touch the lendings.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class FineAccrualServiceImpl implements FineAccrualService {
+    private final LendingRepository lendingRepository;
+    private final FineAccrualRepository fineAccrualRepository;
+    private final ReaderFineBalanceRepository readerFineBalanceRepository;
+    private final FineAccrualSnapshotRepository fineAccrualSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${fineAccrualChunkSize}")
+    private int chunkSize;
+
+    @Override
+    @Scheduled(cron = "${fineAccrualCron}")
+    public synchronized FineAccrualSnapshot accrue() {
+        final long run = getSnapshot().getRun() + 1;
+
+        LendingCursor after = null;
+        do {
+            final LendingCursor from = after;
+            after = transactionTemplate.execute(status -> accrueChunk(from, run)).next;
+        } while (after != null);
+
+        Chunk released;
+        do {
+            released = transactionTemplate.execute(status -> releaseChunk(run));
+        } while (released.size > 0);
+
+        return transactionTemplate.execute(status -> {
+            final FineAccrualSnapshot snapshot = getSnapshot();
+            snapshot.update(run, LocalDate.now());
+            return fineAccrualSnapshotRepository.save(snapshot);
+        });
+    }
+
+    private Chunk accrueChunk(LendingCursor after, long run) {
+        final var page = lendingRepository.getOverdue(after, chunkSize);
+        final List<LendingSummary> lendings = page.getItems();
+        if (lendings.isEmpty())
+            return new Chunk(0, null);
+
+        final Set<String> lendingNumbers = new HashSet<>();
+        final Set<String> readerNumbers = new HashSet<>();
+        for (LendingSummary l : lendings) {
+            lendingNumbers.add(l.getLendingNumber());
+            readerNumbers.add(l.getReaderNumber());
+        }
+        final Map<String, FineAccrual> accruals = new HashMap<>();
+        for (FineAccrual a : fineAccrualRepository.findByLendingNumberIn(lendingNumbers)) {
+            accruals.put(a.getLendingNumber(), a);
+        }
+        final Map<String, ReaderFineBalance> balances = findBalances(readerNumbers);
+
+        long delta = 0;
+        for (LendingSummary l : lendings) {
+            final String readerNumber = l.getReaderNumber();
+            final FineAccrual accrual = accruals.computeIfAbsent(l.getLendingNumber(),
+                    ln -> new FineAccrual(ln, readerNumber));
+            final Integer centsValue = l.getFineValueInCents();
+            final int lendingDelta = accrual.accrue(centsValue == null ? 0 : centsValue, run);
+            balances.get(readerNumber).add(lendingDelta);
+            fineAccrualRepository.save(accrual);
+            delta += lendingDelta;
+        }
+        balances.values().forEach(readerFineBalanceRepository::save);
+        addToTotal(delta);
+
+        return new Chunk(lendings.size(), page.getNext() == null ? null : LendingCursor.decode(page.getNext()));
+    }
+
+    private Chunk releaseChunk(long run) {
+        final List<FineAccrual> stale = fineAccrualRepository.findAccruedBefore(run, chunkSize);
+        if (stale.isEmpty())
+            return new Chunk(0, null);
+
+        final Set<String> readerNumbers = new HashSet<>();
+        for (FineAccrual a : stale) {
+            readerNumbers.add(a.getReaderNumber());
+        }
+        final Map<String, ReaderFineBalance> balances = findBalances(readerNumbers);
+
+        long delta = 0;
+        for (FineAccrual a : stale) {
+            balances.get(a.getReaderNumber()).add(-a.getAccruedCents());
+            fineAccrualRepository.delete(a);
+            delta -= a.getAccruedCents();
+        }
+        balances.values().forEach(readerFineBalanceRepository::save);
+        addToTotal(delta);
+
+        return new Chunk(stale.size(), null);
+    }
+
+    private void addToTotal(long delta) {
+        if (delta == 0)
+            return;
+        final FineAccrualSnapshot snapshot = getSnapshot();
+        snapshot.addToTotal(delta);
+        fineAccrualSnapshotRepository.save(snapshot);
+    }
+
+    private Map<String, ReaderFineBalance> findBalances(Set<String> readerNumbers) {
+        final Map<String, ReaderFineBalance> balances = new HashMap<>();
+        for (ReaderFineBalance b : readerFineBalanceRepository.findByReaderNumberIn(readerNumbers)) {
+            balances.put(b.getReaderNumber(), b);
+        }
+        for (String readerNumber : readerNumbers) {
+            balances.computeIfAbsent(readerNumber, ReaderFineBalance::new);
+        }
+        return balances;
+    }
+
+    @Override
+    public FineAccrualSnapshot getSnapshot() {
+        return fineAccrualSnapshotRepository.findById(FineAccrualSnapshot.ID)
+                .orElseGet(FineAccrualSnapshot::empty);
+    }
+
+    @Override
+    public ReaderFineBalance getReaderBalance(String readerNumber) {
+        return readerFineBalanceRepository.findByReaderNumber(readerNumber)
+                .orElseGet(() -> new ReaderFineBalance(readerNumber));
+    }
+
+    /**
+     * Outcome of a chunk: how many rows it processed and where the next one starts.
+     */
+    private static final class Chunk {
+        private final int size;
+        private final LendingCursor next;
+
+        private Chunk(int size, LendingCursor next) {
+            this.size = size;
+            this.next = next;
+        }
+    }
+}
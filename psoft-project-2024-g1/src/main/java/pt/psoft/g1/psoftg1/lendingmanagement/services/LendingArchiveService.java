@@ -0,0 +1,9 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+public interface LendingArchiveService {
+    /**
+     * Moves the lendings returned longer ago than the archive horizon to the archive.
+     * @return number of lendings archived
+     */
+    int archive();
+}
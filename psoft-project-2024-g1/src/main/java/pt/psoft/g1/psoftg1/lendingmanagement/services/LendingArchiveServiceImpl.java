@@ -0,0 +1,46 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ArchivedLendingRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the operational lendings down to the recent ones.
+ * <p>
+ * Lendings returned more than {@code lendingArchiveHorizonDays} ago are moved, in chunks, to the archive.
+ * Open lendings are never archived, so overdue and outstanding lendings are always found among the operational ones,
+ * and searches only read the archive when their filters can match an archived lending.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingArchiveServiceImpl implements LendingArchiveService {
+    private final ArchivedLendingRepository archivedLendingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${lendingArchiveHorizonDays}")
+    private int horizonDays;
+    @Value("${lendingArchiveChunkSize}")
+    private int chunkSize;
+
+    @Override
+    @Scheduled(cron = "${lendingArchiveCron}")
+    public synchronized int archive() {
+        final LocalDate returnedBefore = LocalDate.now().minusDays(horizonDays);
+        int total = 0;
+        int archived;
+        do {
+            // each chunk is committed on its own, so the rows moved are only locked for one chunk
+            archived = transactionTemplate.execute(status ->
+                    archivedLendingRepository.archiveReturnedBefore(returnedBefore, chunkSize));
+            total += archived;
+        } while (archived == chunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,346 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ArchivedLendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of the lendings, archived ones included, kept as one primitive column per value,
+ * that the lending statistics are computed from.
+ * <p>
+ * Dates are stored as epoch days, and genres, books and readers as codes given by a dictionary of their natural keys,
+ * so each statistic is a single loop over a few {@code int} arrays, accumulating into a primitive array.
+ * Lendings are counted in the current genre of their book, which is kept once per book rather than per row,
+ * so a change of genre moves all the lendings of the book at once.
+ * <p>
+ * Totals over more than {@code statisticsParallelThreshold} lendings are aggregated in parallel on the
+ * {@code statisticsPool}, each task accumulating a slice of the rows into its own arrays, which are then added together.
+ * <p>
+ * The store is loaded once the application is ready, and lendings created or returned are registered as their
+ * transaction commits, and the genre of a book as its change commits. Archiving a lending does not change its row.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingColumnStore {
+    private static final int NOT_RETURNED = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    // rows aggregated by each parallel task, large enough to amortize forking it
+    private static final int ROWS_PER_TASK = 16_384;
+
+    private final LendingRepository lendingRepository;
+    private final ArchivedLendingRepository archivedLendingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool statisticsPool;
+
+    @Value("${statisticsParallelThreshold}")
+    private int parallelThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // all columns are indexed by row, a row per lending
+    private int size;
+    private int[] startDay = new int[INITIAL_CAPACITY];
+    private int[] startMonth = new int[INITIAL_CAPACITY];
+    private int[] returnedDay = new int[INITIAL_CAPACITY];
+    private int[] book = new int[INITIAL_CAPACITY];
+    private int[] reader = new int[INITIAL_CAPACITY];
+    // genre of each book, indexed by book
+    private int[] bookGenre = new int[INITIAL_CAPACITY];
+    private int minStartDay = Integer.MAX_VALUE;
+    private int maxStartDay = Integer.MIN_VALUE;
+
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary books = new Dictionary();
+    private final Dictionary readers = new Dictionary();
+
+    /**
+     * Loads every lending from the database, replacing the current contents.
+     * Statistics wait for the load to finish, so they are never computed from a partial store.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<LendingFact> facts = lendingRepository.streamFacts()) {
+                    facts.forEach(this::put);
+                }
+                try (Stream<LendingFact> facts = archivedLendingRepository.streamFacts()) {
+                    facts.forEach(this::put);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // before the cached statistics are dropped, so they are not computed again from the old columns
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLendingsCreated(LendingsCreatedEvent event) {
+        putAll(event.getLendings());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLendingsReturned(LendingsReturnedEvent event) {
+        putAll(event.getLendings());
+    }
+
+    /**
+     * Moves the lendings of a book to its new genre. Books without lendings are ignored.
+     *
+     * @param isbn  - ISBN of the book
+     * @param genre - name of the genre of the book
+     */
+    public void changeGenre(String isbn, String genre) {
+        lock.writeLock().lock();
+        try {
+            final int b = books.find(isbn);
+            if (b >= 0)
+                bookGenre[b] = genres.code(genre);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of lendings, number of returned lendings and sum of their durations, per start month and genre
+     */
+    public List<LendingTotals> totalsPerMonthAndGenre() {
+        lock.readLock().lock();
+        try {
+            return totals(size > parallelThreshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<LendingTotals> totalsPerMonthAndGenre(boolean parallel) {
+        lock.readLock().lock();
+        try {
+            return totals(parallel);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the read lock held by the caller keeps the columns unchanged while the tasks read them
+    private List<LendingTotals> totals(boolean parallel) {
+        if (size == 0)
+            return List.of();
+
+        final int firstMonth = month(LocalDate.ofEpochDay(minStartDay));
+        final int genreCount = genres.size();
+        final int cells = (month(LocalDate.ofEpochDay(maxStartDay)) - firstMonth + 1) * genreCount;
+        final TotalsAccumulation accumulation = new TotalsAccumulation(0, size, firstMonth, genreCount, cells);
+        // lendings of each cell first, then their returned lendings, then the sums of their durations
+        final long[] totals = parallel ? statisticsPool.invoke(accumulation) : accumulation.accumulate();
+
+        final List<LendingTotals> result = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            if (totals[cell] == 0)
+                continue;
+            final int m = firstMonth + cell / genreCount;
+            result.add(new LendingTotals(genres.value(cell % genreCount), YearMonth.of(m / 12, m % 12 + 1),
+                    totals[cell], totals[cells + cell], totals[2 * cells + cell]));
+        }
+        return result;
+    }
+
+    /**
+     * @param genre - name of the genre
+     * @param limit - maximum number of readers to return
+     * @return reader numbers of the readers with the most lendings of the genre started between {@code from} and {@code to},
+     * inclusive, with their number of lendings, most lendings first
+     */
+    public List<Map.Entry<String, Long>> topReadersOfGenre(String genre, LocalDate from, LocalDate to, int limit) {
+        lock.readLock().lock();
+        try {
+            final int g = genres.find(genre);
+            if (g < 0)
+                return List.of();
+
+            final int fromDay = day(from);
+            final int toDay = day(to);
+            final long[] counts = new long[readers.size()];
+            for (int i = 0; i < size; i++) {
+                final int d = startDay[i];
+                if (bookGenre[book[i]] == g && d >= fromDay && d <= toDay)
+                    counts[reader[i]]++;
+            }
+
+            final List<Map.Entry<String, Long>> result = new ArrayList<>();
+            for (int r = 0; r < counts.length; r++) {
+                if (counts[r] > 0)
+                    result.add(Map.entry(readers.value(r), counts[r]));
+            }
+            result.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void putAll(Collection<LendingFact> facts) {
+        lock.writeLock().lock();
+        try {
+            facts.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(LendingFact fact) {
+        Integer row = rows.get(fact.getLendingNumber());
+        if (row == null) {
+            if (size == startDay.length)
+                grow();
+            row = size++;
+            rows.put(fact.getLendingNumber(), row);
+        }
+
+        final int start = day(fact.getStartDate());
+        startDay[row] = start;
+        startMonth[row] = month(fact.getStartDate());
+        returnedDay[row] = fact.getReturnedDate() == null ? NOT_RETURNED : day(fact.getReturnedDate());
+        final int b = books.code(fact.getIsbn());
+        if (b == bookGenre.length)
+            bookGenre = Arrays.copyOf(bookGenre, b * 2);
+        bookGenre[b] = genres.code(fact.getGenre());
+        book[row] = b;
+        reader[row] = readers.code(fact.getReaderNumber());
+        minStartDay = Math.min(minStartDay, start);
+        maxStartDay = Math.max(maxStartDay, start);
+    }
+
+    private void grow() {
+        final int capacity = startDay.length * 2;
+        startDay = Arrays.copyOf(startDay, capacity);
+        startMonth = Arrays.copyOf(startMonth, capacity);
+        returnedDay = Arrays.copyOf(returnedDay, capacity);
+        book = Arrays.copyOf(book, capacity);
+        reader = Arrays.copyOf(reader, capacity);
+    }
+
+    private void clear() {
+        size = 0;
+        minStartDay = Integer.MAX_VALUE;
+        maxStartDay = Integer.MIN_VALUE;
+        rows.clear();
+        genres.clear();
+        books.clear();
+        readers.clear();
+    }
+
+    private static int day(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    private static int month(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Accumulates the lendings, returned lendings and duration sum, per month and genre, over a slice of the rows.
+     * Slices larger than {@link #ROWS_PER_TASK} are split in two, and the halves accumulated in parallel.
+     */
+    private final class TotalsAccumulation extends RecursiveTask<long[]> {
+        private final int fromRow;
+        private final int toRow;
+        private final int firstMonth;
+        private final int genreCount;
+        private final int cells;
+
+        private TotalsAccumulation(int fromRow, int toRow, int firstMonth, int genreCount, int cells) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.firstMonth = firstMonth;
+            this.genreCount = genreCount;
+            this.cells = cells;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toRow - fromRow <= ROWS_PER_TASK)
+                return accumulate();
+
+            final int middle = (fromRow + toRow) >>> 1;
+            final TotalsAccumulation left = new TotalsAccumulation(fromRow, middle, firstMonth, genreCount, cells);
+            left.fork();
+            final long[] totals = new TotalsAccumulation(middle, toRow, firstMonth, genreCount, cells).compute();
+            final long[] leftTotals = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += leftTotals[i];
+            }
+            return totals;
+        }
+
+        private long[] accumulate() {
+            final long[] totals = new long[3 * cells];
+            for (int i = fromRow; i < toRow; i++) {
+                final int cell = (startMonth[i] - firstMonth) * genreCount + bookGenre[book[i]];
+                totals[cell]++;
+                final int r = returnedDay[i];
+                if (r != NOT_RETURNED) {
+                    totals[cells + cell]++;
+                    totals[2 * cells + cell] += r - startDay[i];
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Gives each distinct value a code, in order of arrival.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int code(String value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        private int find(String value) {
+            return codes.getOrDefault(value, -1);
+        }
+
+        private String value(int code) {
+            return values.get(code);
+        }
+
+        private int size() {
+            return values.size();
+        }
+
+        private void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+}
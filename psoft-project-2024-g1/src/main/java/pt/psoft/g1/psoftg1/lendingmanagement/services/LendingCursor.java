@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of a {@code Lending} in (limitDate, pk) order, used to continue a keyset paginated listing
+ * right after it.
+ * <p>It travels to clients as an opaque token, see {@link #encode()} and {@link #decode(String)}.
+ */
+@Getter
+@AllArgsConstructor
+public class LendingCursor {
+    private final LocalDate limitDate;
+    private final long pk;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((limitDate + ":" + pk).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token - value previously returned by {@link #encode()}
+     * @throws IllegalArgumentException if {@code token} is not a valid cursor
+     */
+    public static LendingCursor decode(String token) {
+        try {
+            final String[] key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (key.length != 2)
+                throw new IllegalArgumentException("Invalid cursor");
+            return new LendingCursor(LocalDate.parse(key[0]), Long.parseLong(key[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
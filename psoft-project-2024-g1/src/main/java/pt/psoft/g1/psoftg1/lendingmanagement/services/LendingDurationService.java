@@ -0,0 +1,29 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.util.Collection;
+
+public interface LendingDurationService {
+    /**
+     * Adds returned lendings to the duration aggregates. Must be called in the transaction that returns them.
+     * @param lendings - lendings that were just set as returned
+     */
+    void registerReturns(Collection<Lending> lendings);
+
+    /**
+     * @return the average duration, in days, of all returned lendings, or {@code null} if there are none
+     */
+    Double getAverageDuration();
+
+    /**
+     * @param isbn - ISBN of the book
+     * @return the average duration, in days, of the returned lendings of the book, or {@code null} if there are none
+     */
+    Double getAverageDuration(String isbn);
+
+    /**
+     * Rebuilds every duration aggregate from the lendings.
+     */
+    void reconcile();
+}
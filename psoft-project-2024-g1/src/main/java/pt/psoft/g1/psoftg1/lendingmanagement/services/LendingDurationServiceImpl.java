@@ -0,0 +1,126 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationAggregate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationAggregateRepository;
+
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Keeps running sums and counts of the durations of returned lendings, per book and over all books,
+ * so average durations are read from a single row.
+ * <p>
+ * Aggregates are updated in the same transaction that returns the lendings, each with a single update that adds to it,
+ * so returns of different books never wait for each other. The aggregate over all books is only updated right before
+ * that transaction commits, so returns hold its row only while they commit. Aggregates are updated in key order,
+ * where {@link LendingDurationAggregate#ALL} comes after every ISBN, and a reconciliation starts by locking every
+ * aggregate in that order too, so it never interleaves with a return.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingDurationServiceImpl implements LendingDurationService {
+    private final LendingDurationAggregateRepository lendingDurationAggregateRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registerReturns(Collection<Lending> lendings) {
+        if (lendings.isEmpty())
+            return;
+
+        // book aggregates are updated in ISBN order, so concurrent returns cannot deadlock
+        final SortedMap<String, long[]> durations = new TreeMap<>();
+        for (Lending l : lendings) {
+            final long[] sum = durations.computeIfAbsent(l.getBook().getIsbn(), isbn -> new long[2]);
+            sum[0] += ChronoUnit.DAYS.between(l.getStartDate(), l.getReturnedDate());
+            sum[1]++;
+        }
+
+        long totalDays = 0;
+        long returnedLendings = 0;
+        for (Map.Entry<String, long[]> entry : durations.entrySet()) {
+            addDurations(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            totalDays += entry.getValue()[0];
+            returnedLendings += entry.getValue()[1];
+        }
+
+        final long allDays = totalDays;
+        final long allLendings = returnedLendings;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                addDurations(LendingDurationAggregate.ALL, allDays, allLendings);
+            }
+        });
+    }
+
+    private void addDurations(String aggregateKey, long totalDays, long returnedLendings) {
+        if (lendingDurationAggregateRepository.addDurations(aggregateKey, totalDays, returnedLendings) > 0)
+            return;
+        try {
+            lendingDurationAggregateRepository.createAggregate(aggregateKey);
+        } catch (DataIntegrityViolationException e) {
+            // created by a concurrent transaction since
+        }
+        lendingDurationAggregateRepository.addDurations(aggregateKey, totalDays, returnedLendings);
+    }
+
+    @Override
+    public Double getAverageDuration() {
+        return lendingDurationAggregateRepository.findByAggregateKey(LendingDurationAggregate.ALL)
+                .map(LendingDurationAggregate::getAverageDays)
+                .orElse(null);
+    }
+
+    @Override
+    public Double getAverageDuration(String isbn) {
+        return lendingDurationAggregateRepository.findByAggregateKey(isbn)
+                .map(LendingDurationAggregate::getAverageDays)
+                .orElse(null);
+    }
+
+    @Override
+    @Scheduled(cron = "${lendingDurationReconcileCron}")
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final List<LendingDurationAggregate> aggregates = lendingDurationAggregateRepository.findAllForUpdate();
+
+            final Map<String, LendingDurationAggregate> computed = new HashMap<>();
+            for (LendingDurationAggregate a : lendingDurationAggregateRepository.computeFromLendings()) {
+                computed.put(a.getAggregateKey(), a);
+            }
+            for (LendingDurationAggregate a : aggregates) {
+                final LendingDurationAggregate actual = computed.remove(a.getAggregateKey());
+                if (actual == null)
+                    a.reset(0, 0);
+                else
+                    a.reset(actual.getTotalDays(), actual.getReturnedLendings());
+                lendingDurationAggregateRepository.save(a);
+            }
+            computed.values().forEach(lendingDurationAggregateRepository::save);
+        });
+    }
+
+    /**
+     * Builds the aggregates on the first start over an existing database, e.g. one with bootstrapped lendings.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!lendingDurationAggregateRepository.findAll().iterator().hasNext())
+            reconcile();
+    }
+}
@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+
+/**
+ * Formats in which lendings can be exported.
+ */
+@Getter
+public enum LendingExportFormat {
+    /** One JSON object per line. */
+    NDJSON("application/x-ndjson"),
+    /** Comma separated values, with a header line. */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    LendingExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public static LendingExportFormat fromString(String format) {
+        for (LendingExportFormat f : values()) {
+            if (f.name().equalsIgnoreCase(format))
+                return f;
+        }
+        throw new IllegalArgumentException("Export format must be one of ndjson, csv");
+    }
+}
@@ -0,0 +1,92 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes lendings one at a time in a {@link LendingExportFormat}, so nothing but the current row is kept in memory.
+ */
+class LendingExportWriter {
+    private static final String[] COLUMNS = {"lendingNumber", "isbn", "bookTitle", "readerNumber",
+            "startDate", "limitDate", "returnedDate", "daysOverdue", "fineValueInCents"};
+
+    private final LendingExportFormat format;
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+
+    LendingExportWriter(LendingExportFormat format, Writer writer, ObjectMapper objectMapper) {
+        this.format = format;
+        this.writer = writer;
+        this.objectMapper = objectMapper;
+    }
+
+    void writeHeader() {
+        if (format == LendingExportFormat.CSV)
+            writeLine(String.join(",", COLUMNS));
+    }
+
+    void write(Lending lending) {
+        final Map<String, Object> row = toRow(lending);
+        try {
+            if (format == LendingExportFormat.NDJSON) {
+                writeLine(objectMapper.writeValueAsString(row));
+            } else {
+                final StringBuilder line = new StringBuilder();
+                for (String column : COLUMNS) {
+                    if (line.length() > 0)
+                        line.append(',');
+                    line.append(csvValue(row.get(column)));
+                }
+                writeLine(line.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> toRow(Lending lending) {
+        final Map<String, Object> row = new LinkedHashMap<>();
+        row.put("lendingNumber", lending.getLendingNumber());
+        row.put("isbn", lending.getBook().getIsbn());
+        row.put("bookTitle", lending.getTitle());
+        row.put("readerNumber", lending.getReaderDetails().getReaderNumber());
+        row.put("startDate", lending.getStartDate());
+        row.put("limitDate", lending.getLimitDate());
+        row.put("returnedDate", lending.getReturnedDate());
+        row.put("daysOverdue", lending.getDaysOverdue().orElse(null));
+        row.put("fineValueInCents", lending.getFineValueInCents().orElse(null));
+        return row;
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null)
+            return "";
+        final String s = String.valueOf(value);
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0)
+            return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
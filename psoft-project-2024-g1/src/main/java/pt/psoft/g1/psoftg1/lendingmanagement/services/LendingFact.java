@@ -0,0 +1,35 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.time.LocalDate;
+
+/**
+ * The values of a {@code Lending} the statistics are computed from, either selected straight from the database
+ * to load the {@link LendingColumnStore}, or taken from a lending that was just created or returned.
+ */
+@Getter
+public class LendingFact {
+    private final String lendingNumber;
+    private final LocalDate startDate;
+    private final LocalDate returnedDate;
+    private final String genre;
+    private final String isbn;
+    private final String readerNumber;
+
+    public LendingFact(String lendingNumber, LocalDate startDate, LocalDate returnedDate,
+                       String genre, String isbn, String readerNumber) {
+        this.lendingNumber = lendingNumber;
+        this.startDate = startDate;
+        this.returnedDate = returnedDate;
+        this.genre = genre;
+        this.isbn = isbn;
+        this.readerNumber = readerNumber;
+    }
+
+    public static LendingFact of(Lending lending) {
+        return new LendingFact(lending.getLendingNumber(), lending.getStartDate(), lending.getReturnedDate(),
+                lending.getBook().getGenre().getGenre(), lending.getBook().getIsbn(), lending.getReaderDetails().getReaderNumber());
+    }
+}
@@ -0,0 +1,110 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingNumber;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingSequenceRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out {@code LendingNumber}s for the current year.
+ * <p>
+ * Sequential numbers are reserved in blocks of {@code lendingNumberBlockSize} in the database
+ * and then handed out from memory, so only one in every block of checkouts touches the sequence row.
+ * Numbers left unused in a block (e.g. on restart) are skipped, which leaves gaps but never duplicates.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingNumberAllocator {
+    private final LendingSequenceRepository lendingSequenceRepository;
+
+    @Value("${lendingNumberBlockSize}")
+    private int blockSize;
+
+    private volatile Block block = new Block(0, 0, 0);
+
+    /**
+     * @return the next {@code LendingNumber} of the current year
+     */
+    public LendingNumber next() {
+        return next(1).get(0);
+    }
+
+    /**
+     * @param count - amount of lending numbers to allocate
+     * @return {@code count} consecutive {@code LendingNumber}s of the current year
+     */
+    public List<LendingNumber> next(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("At least one lending number must be allocated");
+
+        final int year = LocalDate.now().getYear();
+        final int first = block.take(year, count);
+        if (first >= 0)
+            return toLendingNumbers(year, first, count);
+
+        return nextFromNewBlock(year, count);
+    }
+
+    private synchronized List<LendingNumber> nextFromNewBlock(int year, int count) {
+        // another thread may have refilled the block while this one was waiting
+        int first = block.take(year, count);
+        if (first >= 0)
+            return toLendingNumbers(year, first, count);
+
+        final int size = Math.max(blockSize, count);
+        first = reserveBlock(year, size);
+        block = new Block(year, first + count, first + size);
+        return toLendingNumbers(year, first, count);
+    }
+
+    private int reserveBlock(int year, int size) {
+        try {
+            return lendingSequenceRepository.reserveBlock(year, size);
+        } catch (DataIntegrityViolationException e) {
+            // another instance created this year's sequence at the same time, it now exists
+            return lendingSequenceRepository.reserveBlock(year, size);
+        }
+    }
+
+    private static List<LendingNumber> toLendingNumbers(int year, int first, int count) {
+        final List<LendingNumber> lendingNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lendingNumbers.add(new LendingNumber(year, first + i));
+        }
+        return lendingNumbers;
+    }
+
+    /**
+     * Range [{@code next}, {@code end}) of sequential numbers reserved for {@code year}.
+     */
+    private static final class Block {
+        private final int year;
+        private final AtomicInteger next;
+        private final int end;
+
+        private Block(int year, int next, int end) {
+            this.year = year;
+            this.next = new AtomicInteger(next);
+            this.end = end;
+        }
+
+        /**
+         * @return the first of {@code count} numbers taken from this block, or -1 if it cannot serve them
+         */
+        private int take(int year, int count) {
+            if (this.year != year || next.get() + count > end)
+                return -1;
+            final int first = next.getAndAdd(count);
+            return first + count <= end ? first : -1;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * Outcome of a single item of a batch operation on lendings.
+ * <p>Holds either the resulting {@code Lending} or the reason why the item was rejected.
+ */
+@Getter
+public class LendingResult {
+    private final String key;
+    private final Lending lending;
+    private final String error;
+
+    private LendingResult(String key, Lending lending, String error) {
+        this.key = key;
+        this.lending = lending;
+        this.error = error;
+    }
+
+    public static LendingResult success(String key, Lending lending) {
+        return new LendingResult(key, lending, null);
+    }
+
+    public static LendingResult failure(String key, String error) {
+        return new LendingResult(key, null, error);
+    }
+
+    public boolean isSuccess() {
+        return lending != null;
+    }
+}
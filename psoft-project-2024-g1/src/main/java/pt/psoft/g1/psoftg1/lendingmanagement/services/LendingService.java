@@ -1,8 +1,10 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
+import java.io.Writer;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,19 +14,46 @@ public interface LendingService {
      * @return {@code Optional<Lending>}
      */
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    /**
+     * Lendings returned long ago are moved to the archive, where they can still be read but no longer changed.
+     * @param lendingNumber - Lending Number of a lending that is not found by {@link #findByLendingNumber}
+     * @return the archived lending, if any
+     */
+    Optional<LendingSummary> findArchivedByLendingNumber(String lendingNumber);
     /**
      * @param readerNumber - Reader Number of the Reader associated with the lending
      * @param isbn         - ISBN of the book associated with the lending
      * @param returned     - Wether it's intended to filter by the return status of a lending
-     * @return {@code Iterable<Lending>}
+     * @return {@code List<LendingSummary>}
      */
-    List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned);
+    List<LendingSummary> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned, Page page);
     Lending create(CreateLendingRequest resource); //No ID passed, as it is auto generated
+    /**
+     * Lends several books to the same reader at once.
+     * @param resource - Reader Number and the ISBNs of the books to lend
+     * @return one {@code LendingResult} per requested ISBN, in the same order
+     */
+    List<LendingResult> createAll(CreateLendingsRequest resource);
     Lending setReturned(String id, SetLendingReturnedRequest resource, long desiredVersion);
+    /**
+     * Sets several lendings as returned at once. An item that cannot be returned, e.g. because
+     * its version no longer matches, is reported without affecting the remaining items.
+     * @param resource - Lending Numbers, with their expected versions
+     * @return one {@code LendingResult} per requested lending, in the same order
+     */
+    List<LendingResult> setAllReturned(ReturnLendingsRequest resource);
     Double getAverageDuration();
-    List<Lending> getOverdue(Page page);
+    List<LendingSummary> getOverdue(Page page);
+    CursorPage<LendingSummary> getOverdue(String cursor, int limit);
     Double getAvgLendingDurationByIsbn(String isbn);
-    List<Lending> searchLendings(Page page, SearchLendingQuery request);
+    List<LendingSummary> searchLendings(Page page, SearchLendingQuery request);
+    /**
+     * Writes every lending matching {@code query}, as it is read from the database.
+     * @param query  - same filters as {@link #searchLendings}, {@code null} for all lendings
+     * @param format - format of the written lendings
+     * @param writer - where the lendings are written to
+     */
+    void exportLendings(SearchLendingQuery query, LendingExportFormat format, Writer writer);
 
 
 }
@@ -1,33 +1,57 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.StaleObjectStateException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
-import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingNumber;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ReaderLendingLedger;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ArchivedLendingRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderLendingLedgerRepository;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.StripedLock;
 
+import java.io.Writer;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @PropertySource({"classpath:config/library.properties"})
 public class LendingServiceImpl implements LendingService{
     private final LendingRepository lendingRepository;
+    private final ArchivedLendingRepository archivedLendingRepository;
     private final FineRepository fineRepository;
     private final BookRepository bookRepository;
     private final ReaderRepository readerRepository;
+    private final LendingNumberAllocator lendingNumberAllocator;
+    private final ReaderLendingLedgerRepository readerLendingLedgerRepository;
+    private final LendingDurationService lendingDurationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_OUTSTANDING_LENDINGS = 3;
+    private static final String ARCHIVED = "Lending was returned and archived, and can no longer be changed";
+    private final StripedLock readerLocks = new StripedLock(64);
 
     @Value("${lendingDurationInDays}")
     private int lendingDurationInDays;
@@ -40,53 +64,109 @@ public class LendingServiceImpl implements LendingService{
     }
 
     @Override
-    public List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned){
-        List<Lending> lendings = lendingRepository.listByReaderNumberAndIsbn(readerNumber, isbn);
-        if(returned.isEmpty()){
-            return lendings;
-        }else{
-            for(int i = 0; i < lendings.size(); i++){
-                if ((lendings.get(i).getReturnedDate() == null) == returned.get()){
-                    lendings.remove(i);
-                    i--;
-                }
-            }
+    public Optional<LendingSummary> findArchivedByLendingNumber(String lendingNumber) {
+        return archivedLendingRepository.findSummaryByLendingNumber(lendingNumber);
+    }
+
+    @Override
+    public List<LendingSummary> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned, Page page){
+        if (page == null) {
+            page = new Page(1, 10);
         }
-        return lendings;
+        if (page.getNumber() < 1)
+            throw new IllegalArgumentException("Paging must start with page 1");
+        if (page.getLimit() < 1 || page.getLimit() > 100)
+            throw new IllegalArgumentException("You can request between 1 and 100 records");
+        return lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber, isbn, returned.orElse(null), page);
     }
 
     @Override
+    @Transactional
     public Lending create(final CreateLendingRequest resource) {
-        int count = 0;
+        lockReaderUntilCompletion(resource.getReaderNumber());
 
-        Iterable<Lending> lendingList = lendingRepository.listOutstandingByReaderNumber(resource.getReaderNumber());
-        for (Lending lending : lendingList) {
-            //Business rule: cannot create a lending if user has late outstanding books to return.
-            if (lending.getDaysDelayed() > 0) {
-                throw new LendingForbiddenException("Reader has book(s) past their due date");
-            }
-            count++;
-            //Business rule: cannot create a lending if user already has 3 outstanding books to return.
-            if (count >= 3) {
-                throw new LendingForbiddenException("Reader has three books outstanding already");
-            }
-        }
+        final var ledger = readerLendingLedgerRepository.findByReaderNumberForUpdate(resource.getReaderNumber());
+        ledger.ensureCanLend(LocalDate.now(), MAX_OUTSTANDING_LENDINGS);
 
         final var b = bookRepository.findByIsbn(resource.getIsbn())
                 .orElseThrow(() -> new NotFoundException("Book not found"));
         final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
                 .orElseThrow(() -> new NotFoundException("Reader not found"));
-        int seq = lendingRepository.getCountFromCurrentYear()+1;
-        final Lending l = new Lending(b,r,seq, lendingDurationInDays, fineValuePerDayInCents );
+        final var lendingNumber = lendingNumberAllocator.next();
+        final Lending l = lendingRepository.save(new Lending(b, r, lendingNumber, lendingDurationInDays, fineValuePerDayInCents));
 
-        return lendingRepository.save(l);
+        ledger.registerLending(l.getLimitDate());
+        readerLendingLedgerRepository.save(ledger);
+        eventPublisher.publishEvent(new LendingsCreatedEvent(List.of(l)));
+
+        return l;
     }
 
     @Override
-    public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
+    @Transactional
+    public List<LendingResult> createAll(final CreateLendingsRequest resource) {
+        lockReaderUntilCompletion(resource.getReaderNumber());
+
+        final var ledger = readerLendingLedgerRepository.findByReaderNumberForUpdate(resource.getReaderNumber());
+        ledger.ensureCanLend(LocalDate.now(), MAX_OUTSTANDING_LENDINGS);
+
+        final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
+                .orElseThrow(() -> new NotFoundException("Reader not found"));
+        final Map<String, Book> books = new HashMap<>();
+        for (Book b : bookRepository.findByIsbnIn(new HashSet<>(resource.getIsbns()))) {
+            books.put(b.getIsbn(), b);
+        }
 
+        final int available = MAX_OUTSTANDING_LENDINGS - ledger.getOutstanding();
+        final List<String> isbns = resource.getIsbns();
+        final List<Book> accepted = new ArrayList<>();
+        final String[] errors = new String[isbns.size()];
+        for (int i = 0; i < isbns.size(); i++) {
+            final Book b = books.get(isbns.get(i));
+            if (b == null)
+                errors[i] = "Book not found";
+            else if (accepted.size() >= available)
+                errors[i] = "Reader has three books outstanding already";
+            else
+                accepted.add(b);
+        }
+
+        final Iterator<LendingNumber> lendingNumbers = accepted.isEmpty()
+                ? Collections.emptyIterator()
+                : lendingNumberAllocator.next(accepted.size()).iterator();
+        final List<LendingResult> results = new ArrayList<>(isbns.size());
+        final List<Lending> created = new ArrayList<>(accepted.size());
+        for (int i = 0; i < isbns.size(); i++) {
+            if (errors[i] != null) {
+                results.add(LendingResult.failure(isbns.get(i), errors[i]));
+                continue;
+            }
+            final Book b = books.get(isbns.get(i));
+            // inserts are only flushed at commit, where they are sent in JDBC batches
+            final Lending l = lendingRepository.save(new Lending(b, r, lendingNumbers.next(), lendingDurationInDays, fineValuePerDayInCents));
+            ledger.registerLending(l.getLimitDate());
+            created.add(l);
+            results.add(LendingResult.success(isbns.get(i), l));
+        }
+        readerLendingLedgerRepository.save(ledger);
+        eventPublisher.publishEvent(new LendingsCreatedEvent(created));
+
+        return results;
+    }
+
+    /**
+     * Not retried on a version conflict, as a lending is only ever changed by its return:
+     * a concurrent change has always set the returned date this update writes.
+     */
+    @Override
+    @Transactional
+    public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
-                .orElseThrow(() -> new NotFoundException("Cannot update lending with this lending number"));
+                .orElseThrow(() -> cannotUpdate(lendingNumber));
+
+        final String readerNumber = lending.getReaderDetails().getReaderNumber();
+        lockReaderUntilCompletion(readerNumber);
+        final var ledger = readerLendingLedgerRepository.findByReaderNumberForUpdate(readerNumber);
 
         lending.setReturned(desiredVersion, resource.getCommentary());
 
@@ -95,34 +175,152 @@ public class LendingServiceImpl implements LendingService{
             fineRepository.save(fine);
         }
 
-        return lendingRepository.save(lending);
+        lending = lendingRepository.save(lending);
+        lendingDurationService.registerReturns(List.of(lending));
+        eventPublisher.publishEvent(new LendingsReturnedEvent(List.of(lending)));
+
+        if (ledger.registerReturn(lending.getLimitDate())) {
+            ledger.setEarliestLimitDate(readerLendingLedgerRepository
+                    .findEarliestOutstandingLimitDate(readerNumber).orElse(null));
+        }
+        readerLendingLedgerRepository.save(ledger);
+
+        return lending;
+    }
+
+    @Override
+    @Transactional
+    public List<LendingResult> setAllReturned(final ReturnLendingsRequest resource) {
+        final List<ReturnLendingRequest> items = resource.getLendings();
+        final Set<String> lendingNumbers = new HashSet<>();
+        for (ReturnLendingRequest item : items) {
+            lendingNumbers.add(item.getLendingNumber());
+        }
+
+        final Map<String, Lending> lendings = new HashMap<>();
+        final SortedSet<String> readerNumbers = new TreeSet<>();
+        for (Lending l : lendingRepository.findByLendingNumberIn(lendingNumbers)) {
+            lendings.put(l.getLendingNumber(), l);
+            readerNumbers.add(l.getReaderDetails().getReaderNumber());
+        }
+
+        lockReadersUntilCompletion(readerNumbers);
+        // ledger rows are locked in reader number order, so concurrent batches cannot deadlock
+        final Map<String, ReaderLendingLedger> ledgers = new HashMap<>();
+        for (String readerNumber : readerNumbers) {
+            ledgers.put(readerNumber, readerLendingLedgerRepository.findByReaderNumberForUpdate(readerNumber));
+        }
+
+        final List<LendingResult> results = new ArrayList<>(items.size());
+        final List<Lending> returned = new ArrayList<>(items.size());
+        final Set<String> staleLedgers = new HashSet<>();
+        for (ReturnLendingRequest item : items) {
+            final Lending l = lendings.get(item.getLendingNumber());
+            if (l == null) {
+                results.add(LendingResult.failure(item.getLendingNumber(),
+                        isArchived(item.getLendingNumber()) ? ARCHIVED : "Lending not found"));
+                continue;
+            }
+            try {
+                l.setReturned(item.getVersion(), item.getCommentary());
+            } catch (StaleObjectStateException | IllegalArgumentException e) {
+                results.add(LendingResult.failure(item.getLendingNumber(), e.getMessage()));
+                continue;
+            }
+
+            // fines and lendings are only flushed at commit, where they are sent in JDBC batches
+            if (l.getDaysDelayed() > 0)
+                fineRepository.save(new Fine(l));
+            lendingRepository.save(l);
+            returned.add(l);
+
+            final String readerNumber = l.getReaderDetails().getReaderNumber();
+            if (ledgers.get(readerNumber).registerReturn(l.getLimitDate()))
+                staleLedgers.add(readerNumber);
+            results.add(LendingResult.success(item.getLendingNumber(), l));
+        }
+
+        for (String readerNumber : staleLedgers) {
+            ledgers.get(readerNumber).setEarliestLimitDate(readerLendingLedgerRepository
+                    .findEarliestOutstandingLimitDate(readerNumber).orElse(null));
+        }
+        for (ReaderLendingLedger ledger : ledgers.values()) {
+            readerLendingLedgerRepository.save(ledger);
+        }
+        lendingDurationService.registerReturns(returned);
+        eventPublisher.publishEvent(new LendingsReturnedEvent(returned));
+
+        return results;
+    }
+
+    /**
+     * A lending that is not found may have been returned and archived, which is a conflict rather than a missing lending.
+     */
+    private RuntimeException cannotUpdate(final String lendingNumber) {
+        if (isArchived(lendingNumber))
+            return new ConflictException(ARCHIVED);
+        return new NotFoundException("Cannot update lending with this lending number");
+    }
+
+    private boolean isArchived(final String lendingNumber) {
+        return archivedLendingRepository.findByLendingNumber(lendingNumber).isPresent();
+    }
+
+    /**
+     * Serializes the lending rule checks of a reader within this instance. The lock is kept until the
+     * surrounding transaction completes, so the next check always sees the committed ledger.
+     */
+    private void lockReaderUntilCompletion(final String readerNumber) {
+        lockReadersUntilCompletion(List.of(readerNumber));
+    }
+
+    private void lockReadersUntilCompletion(final Collection<String> readerNumbers) {
+        final List<Lock> locks = readerLocks.getAll(readerNumbers);
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (Lock lock : locks) {
+                    lock.unlock();
+                }
+            }
+        });
     }
 
     @Override
     public Double getAverageDuration(){
-        Double avg = lendingRepository.getAverageDuration();
-        return Double.valueOf(String.format(Locale.US,"%.1f", avg));
+        return roundDuration(lendingDurationService.getAverageDuration());
     }
 
     @Override
-    public List<Lending> getOverdue(Page page) {
+    public List<LendingSummary> getOverdue(Page page) {
         if (page == null) {
             page = new Page(1, 10);
         }
-        return lendingRepository.getOverdue(page);
+        return lendingRepository.getOverdueSummaries(page);
     }
 
     @Override
-    public Double getAvgLendingDurationByIsbn(String isbn){
-        Double avg = lendingRepository.getAvgLendingDurationByIsbn(isbn);
-        return Double.valueOf(String.format(Locale.US,"%.1f", avg));
+    public CursorPage<LendingSummary> getOverdue(String cursor, int limit) {
+        if (limit < 1 || limit > 100)
+            throw new IllegalArgumentException("You can request between 1 and 100 records");
+        final LendingCursor after = cursor == null || cursor.isBlank() ? null : LendingCursor.decode(cursor);
+        return lendingRepository.getOverdue(after, limit);
     }
 
     @Override
-    public List<Lending> searchLendings(Page page, SearchLendingQuery query){
-        LocalDate startDate = null;
-        LocalDate endDate = null;
+    public Double getAvgLendingDurationByIsbn(String isbn){
+        return roundDuration(lendingDurationService.getAverageDuration(isbn));
+    }
+
+    private static Double roundDuration(Double avg) {
+        return avg == null ? null : Double.valueOf(String.format(Locale.US,"%.1f", avg));
+    }
 
+    @Override
+    public List<LendingSummary> searchLendings(Page page, SearchLendingQuery query){
         if (page == null) {
             page = new Page(1, 10);
         }
@@ -133,16 +331,10 @@ public class LendingServiceImpl implements LendingService{
                     LocalDate.now().minusDays(10L).toString(),
                     null);
 
-        try {
-            if(query.getStartDate()!=null)
-                startDate = LocalDate.parse(query.getStartDate());
-            if(query.getEndDate()!=null)
-                endDate = LocalDate.parse(query.getEndDate());
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
-        }
+        final LocalDate startDate = parseDate(query.getStartDate());
+        final LocalDate endDate = parseDate(query.getEndDate());
 
-        return lendingRepository.searchLendings(page,
+        return lendingRepository.searchLendingSummaries(page,
                 query.getReaderNumber(),
                 query.getIsbn(),
                 query.getReturned(),
@@ -151,6 +343,33 @@ public class LendingServiceImpl implements LendingService{
 
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLendings(SearchLendingQuery query, LendingExportFormat format, Writer writer) {
+        if (query == null)
+            query = new SearchLendingQuery();
+        final LocalDate startDate = parseDate(query.getStartDate());
+        final LocalDate endDate = parseDate(query.getEndDate());
 
+        final LendingExportWriter out = new LendingExportWriter(format, writer, objectMapper);
+        out.writeHeader();
+        try (Stream<Lending> lendings = lendingRepository.streamLendings(query.getReaderNumber(),
+                query.getIsbn(),
+                query.getReturned(),
+                startDate,
+                endDate)) {
+            lendings.forEach(out::write);
+        }
+        out.flush();
+    }
 
+    private static LocalDate parseDate(String date) {
+        if (date == null)
+            return null;
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+        }
+    }
 }
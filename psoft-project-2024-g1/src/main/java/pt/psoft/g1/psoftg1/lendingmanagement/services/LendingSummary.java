@@ -0,0 +1,55 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Flat, read-only view of a {@code Lending}, selected straight from the database for listings.
+ * <p>It carries only the columns needed to present a lending, so neither the {@code Book} nor the
+ * {@code ReaderDetails} entity graphs are loaded. The derived values follow the same rules as {@code Lending}.
+ */
+@Getter
+public class LendingSummary {
+    private final String lendingNumber;
+    private final String isbn;
+    private final String bookTitle;
+    private final String readerNumber;
+    private final LocalDate startDate;
+    private final LocalDate limitDate;
+    private final LocalDate returnedDate;
+    private final int fineValuePerDayInCents;
+
+    public LendingSummary(String lendingNumber, String isbn, String bookTitle, String readerNumber,
+                          LocalDate startDate, LocalDate limitDate, LocalDate returnedDate, int fineValuePerDayInCents) {
+        this.lendingNumber = lendingNumber;
+        this.isbn = isbn;
+        this.bookTitle = bookTitle;
+        this.readerNumber = readerNumber;
+        this.startDate = startDate;
+        this.limitDate = limitDate;
+        this.returnedDate = returnedDate;
+        this.fineValuePerDayInCents = fineValuePerDayInCents;
+    }
+
+    public int getDaysDelayed() {
+        final LocalDate end = returnedDate != null ? returnedDate : LocalDate.now();
+        return Math.max((int) ChronoUnit.DAYS.between(limitDate, end), 0);
+    }
+
+    public Integer getDaysUntilReturn() {
+        final int days = (int) ChronoUnit.DAYS.between(LocalDate.now(), limitDate);
+        return returnedDate != null || days < 0 ? null : days;
+    }
+
+    public Integer getDaysOverdue() {
+        final int days = getDaysDelayed();
+        return days > 0 ? days : null;
+    }
+
+    public Integer getFineValueInCents() {
+        final int days = getDaysDelayed();
+        return days > 0 ? fineValuePerDayInCents * days : null;
+    }
+}
@@ -0,0 +1,27 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.YearMonth;
+
+/**
+ * Totals of the lendings of a genre started in a month.
+ */
+@Getter
+@EqualsAndHashCode
+public class LendingTotals {
+    private final String genre;
+    private final YearMonth month;
+    private final long lendings;
+    private final long returnedLendings;
+    private final long totalDays;
+
+    public LendingTotals(String genre, YearMonth month, long lendings, long returnedLendings, long totalDays) {
+        this.genre = genre;
+        this.month = month;
+        this.lendings = lendings;
+        this.returnedLendings = returnedLendings;
+        this.totalDays = totalDays;
+    }
+}
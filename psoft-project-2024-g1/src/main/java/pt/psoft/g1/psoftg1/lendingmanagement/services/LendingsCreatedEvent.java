@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published, within their transaction, when lendings are created.
+ */
+@Getter
+public class LendingsCreatedEvent {
+    private final List<LendingFact> lendings;
+
+    public LendingsCreatedEvent(Collection<Lending> lendings) {
+        this.lendings = new ArrayList<>(lendings.size());
+        for (Lending l : lendings) {
+            this.lendings.add(LendingFact.of(l));
+        }
+    }
+}
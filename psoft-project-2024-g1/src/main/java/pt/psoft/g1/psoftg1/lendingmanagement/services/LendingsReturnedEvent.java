@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published, within their transaction, when lendings are returned.
+ */
+@Getter
+public class LendingsReturnedEvent {
+    private final List<LendingFact> lendings;
+
+    public LendingsReturnedEvent(Collection<Lending> lendings) {
+        this.lendings = new ArrayList<>(lendings.size());
+        for (Lending l : lendings) {
+            this.lendings.add(LendingFact.of(l));
+        }
+    }
+}
@@ -33,7 +33,9 @@ import pt.psoft.g1.psoftg1.readermanagement.services.CreateReaderRequest;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.readermanagement.services.UpdateReaderRequest;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.StatisticsCache;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
@@ -61,6 +63,7 @@ class ReaderController {
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
     private final ApiNinjasService apiNinjasService;
+    private final StatisticsCache statisticsCache;
 
     @Operation(summary = "Gets the reader data if authenticated as Reader or all readers if authenticated as Librarian")
     @ApiResponse(description = "Success", responseCode = "200", content = { @Content(mediaType = "application/json",
@@ -297,7 +300,13 @@ class ReaderController {
                 final String isbn,
             @RequestParam(value = "returned", required = false)
                 @Parameter(description = "Filter by returned")
-                final Optional<Boolean> returned)
+                final Optional<Boolean> returned,
+            @RequestParam(value = "page", defaultValue = "1")
+                @Parameter(description = "The page of lendings to return")
+                final int page,
+            @RequestParam(value = "limit", defaultValue = "10")
+                @Parameter(description = "The maximum number of lendings to return")
+                final int limit)
     {
         String urlReaderNumber = year + "/" + seq;
 
@@ -316,17 +325,18 @@ class ReaderController {
                 throw new AccessDeniedException("Reader does not have permission to view these lendings");
             }
         }
-        final var lendings = lendingService.listByReaderNumberAndIsbn(urlReaderNumber, isbn, returned);
+        final var lendings = lendingService.listByReaderNumberAndIsbn(urlReaderNumber, isbn, returned, new Page(page, limit));
 
         if(lendings.isEmpty())
             throw new NotFoundException("No lendings found with provided ISBN");
 
-        return lendingViewMapper.toLendingView(lendings);
+        return lendingViewMapper.toLendingViewFromSummaries(lendings);
     }
 
     @GetMapping("/top5")
     public ListResponse<ReaderView> getTop() {
-        return new ListResponse<>(readerViewMapper.toReaderView(readerService.findTopReaders(5)));
+        return new ListResponse<>(statisticsCache.get("readers.top5", List.of(),
+                () -> readerViewMapper.toReaderView(readerService.findTopReaders(5))));
     }
 
     @GetMapping("/top5ByGenre")
@@ -335,12 +345,13 @@ class ReaderController {
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate)
     {
-        final var books = readerService.findTopByGenre(genre,startDate,endDate);
+        final var readers = statisticsCache.get("readers.top5ByGenre", List.of(genre, startDate, endDate),
+                () -> readerViewMapper.toReaderCountViewList(readerService.findTopByGenre(genre, startDate, endDate)));
 
-        if(books.isEmpty())
+        if(readers.isEmpty())
             throw new NotFoundException("No lendings found with provided parameters");
 
-        return new ListResponse<>(readerViewMapper.toReaderCountViewList(books));
+        return new ListResponse<>(readers);
     }
 
     @PostMapping("/search")
@@ -15,10 +15,8 @@ import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 
 import org.springframework.data.domain.Pageable;
-import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -66,18 +64,6 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "ORDER BY COUNT(l) DESC")
     Page<ReaderDetails> findTopReaders(Pageable pageable);
 
-    @Override
-    @Query("SELECT NEW pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO(rd, count(l)) " +
-            "FROM ReaderDetails rd " +
-            "JOIN Lending l ON l.readerDetails.pk = rd.pk " +
-            "JOIN Book b ON b.pk = l.book.pk " +
-            "JOIN Genre g ON g.pk = b.genre.pk " +
-            "WHERE g.genre = :genre " +
-            "AND l.startDate >= :startDate " +
-            "AND l.startDate <= :endDate " +
-            "GROUP BY rd.pk " +
-            "ORDER BY COUNT(l.pk) DESC")
-    Page<ReaderBookCountDTO> findTopByGenre(Pageable pageable, String genre, LocalDate startDate, LocalDate endDate);
 }
 
 interface ReaderDetailsRepoCustom {
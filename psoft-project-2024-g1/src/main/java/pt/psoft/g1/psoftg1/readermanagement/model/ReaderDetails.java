@@ -11,10 +11,12 @@ import pt.psoft.g1.psoftg1.shared.model.EntityWithPhoto;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 
 import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "READER_DETAILS")
+@Table(name = "READER_DETAILS", indexes = {
+        @Index(name = "IDX_READER_DETAILS_READER_NUMBER", columnList = "READER_NUMBER")})
 public class ReaderDetails extends EntityWithPhoto {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -98,6 +100,31 @@ public class ReaderDetails extends EntityWithPhoto {
         }
     }
 
+    /**
+     * Current values of the fields that {@link #applyPatch(long, UpdateReaderRequest, String, List)} would write.
+     * @return  the values, in a fixed order, to compare with those of another version of this reader.
+     * */
+    public List<Object> valuesPatchedBy(final UpdateReaderRequest request, String photoURI, List<Genre> interestList) {
+        final List<Object> values = new ArrayList<>();
+        if(request.getUsername() != null)
+            values.add(this.reader.getUsername());
+        if(request.getPassword() != null)
+            values.add(this.reader.getPassword());
+        if(request.getFullName() != null)
+            values.add(String.valueOf(this.reader.getName()));
+        if(request.getBirthDate() != null)
+            values.add(String.valueOf(this.birthDate));
+        if(request.getPhoneNumber() != null)
+            values.add(String.valueOf(this.phoneNumber));
+        values.add(this.marketingConsent);
+        values.add(this.thirdPartySharingConsent);
+        if(photoURI != null)
+            values.add(this.photo == null ? null : this.photo.getPhotoFile());
+        if(interestList != null)
+            values.add(this.interestList == null ? null : this.interestList.stream().map(String::valueOf).toList());
+        return values;
+    }
+
     public void applyPatch(final long currentVersion, final UpdateReaderRequest request, String photoURI, List<Genre> interestList) {
         if(currentVersion != this.version) {
             throw new ConflictException("Provided version does not match latest version of this object");
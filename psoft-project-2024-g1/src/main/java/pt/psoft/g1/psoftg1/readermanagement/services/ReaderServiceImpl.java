@@ -6,19 +6,23 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingColumnStore;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.OptimisticLockRetry;
+import pt.psoft.g1.psoftg1.shared.services.RetryableUpdate;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Pageable;
 
@@ -28,9 +32,11 @@ public class ReaderServiceImpl implements ReaderService {
     private final ReaderRepository readerRepo;
     private final UserRepository userRepo;
     private final ReaderMapper readerMapper;
-    private final GenreRepository genreRepo;
+    private final GenreService genreService;
     private final ForbiddenNameRepository forbiddenNameRepository;
     private final PhotoRepository photoRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final LendingColumnStore lendingColumnStore;
 
 
     @Override
@@ -82,15 +88,16 @@ public class ReaderServiceImpl implements ReaderService {
         if(startDate.isAfter(endDate)){
             throw new IllegalArgumentException("Start date cannot be after end date");
         }
-        Pageable pageableRules = PageRequest.of(0,5);
-        return this.readerRepo.findTopByGenre(pageableRules, genre, startDate, endDate).getContent();
+        final List<ReaderBookCountDTO> top = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : lendingColumnStore.topReadersOfGenre(genre, startDate, endDate, 5)) {
+            readerRepo.findByReaderNumber(entry.getKey())
+                    .ifPresent(readerDetails -> top.add(new ReaderBookCountDTO(readerDetails, entry.getValue())));
+        }
+        return top;
     }
 
     @Override
     public ReaderDetails update(final Long id, final UpdateReaderRequest request, final long desiredVersion, String photoURI){
-        final ReaderDetails readerDetails = readerRepo.findByUserId(id)
-                .orElseThrow(() -> new NotFoundException("Cannot find reader"));
-
         List<String> stringInterestList = request.getInterestList();
         List<Genre> interestList = this.getGenreListFromStringList(stringInterestList);
 
@@ -111,10 +118,32 @@ public class ReaderServiceImpl implements ReaderService {
             request.setPhoto(null);
         }
 
-        readerDetails.applyPatch(desiredVersion, request, photoURI, interestList);
+        return optimisticLockRetry.execute("reader.update", desiredVersion, new RetryableUpdate<ReaderDetails, ReaderDetails>() {
+            @Override
+            public ReaderDetails load() {
+                return readerRepo.findByUserId(id)
+                        .orElseThrow(() -> new NotFoundException("Cannot find reader"));
+            }
+
+            @Override
+            public long versionOf(ReaderDetails readerDetails) {
+                return readerDetails.getVersion();
+            }
+
+            @Override
+            public Object touchedFields(ReaderDetails readerDetails) {
+                return readerDetails.valuesPatchedBy(request, photoURI, interestList);
+            }
 
-        userRepo.save(readerDetails.getReader());
-        return readerRepo.save(readerDetails);
+            @Override
+            public ReaderDetails apply(long version) {
+                final ReaderDetails readerDetails = load();
+                readerDetails.applyPatch(version, request, photoURI, interestList);
+
+                userRepo.save(readerDetails.getReader());
+                return readerRepo.save(readerDetails);
+            }
+        });
     }
 
 
@@ -161,7 +190,7 @@ public class ReaderServiceImpl implements ReaderService {
 
         List<Genre> genreList = new ArrayList<>();
         for(String interest : interestList) {
-            Optional<Genre> optGenre = genreRepo.findByString(interest);
+            Optional<Genre> optGenre = genreService.findByString(interest);
             if(optGenre.isEmpty()) {
                 throw new NotFoundException("Could not find genre with name " + interest);
             }
@@ -0,0 +1,62 @@
+package pt.psoft.g1.psoftg1.reportmanagement.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pt.psoft.g1.psoftg1.reportmanagement.services.CreateReportRequest;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportService;
+
+@Tag(name = "Reports", description = "Endpoints for generating statistics reports in the background")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reports")
+public class ReportController {
+    private final ReportService reportService;
+    private final ReportViewMapper reportViewMapper;
+
+    @Operation(summary = "Requests a report, which is generated in the background")
+    @PostMapping
+    public ResponseEntity<ReportView> submit(final Authentication authentication,
+                                             @Valid @RequestBody final CreateReportRequest resource) {
+        final var job = reportService.submit(resource, authentication.getName());
+
+        final var jobUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .pathSegment(job.getId())
+                .build().toUri();
+
+        return ResponseEntity.accepted()
+                .location(jobUri)
+                .body(reportViewMapper.toReportView(job));
+    }
+
+    @Operation(summary = "Gets the status of a report")
+    @GetMapping("/{id}")
+    public ReportView findById(final Authentication authentication,
+                               @PathVariable("id") @Parameter(description = "The id of the report") final String id) {
+        return reportViewMapper.toReportView(reportService.findById(id, authentication.getName()));
+    }
+
+    @Operation(summary = "Downloads a generated report")
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Resource> getResult(final Authentication authentication,
+                                              @PathVariable("id") @Parameter(description = "The id of the report") final String id) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(reportService.getResult(id, authentication.getName()));
+    }
+
+    @Operation(summary = "Cancels a report that is not finished yet")
+    @DeleteMapping("/{id}")
+    public ReportView cancel(final Authentication authentication,
+                             @PathVariable("id") @Parameter(description = "The id of the report") final String id) {
+        return reportViewMapper.toReportView(reportService.cancel(id, authentication.getName()));
+    }
+}
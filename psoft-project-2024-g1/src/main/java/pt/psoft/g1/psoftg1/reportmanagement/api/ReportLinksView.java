@@ -0,0 +1,11 @@
+package pt.psoft.g1.psoftg1.reportmanagement.api;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class ReportLinksView {
+    private Map<String, String> self;
+    private Map<String, String> result;
+}
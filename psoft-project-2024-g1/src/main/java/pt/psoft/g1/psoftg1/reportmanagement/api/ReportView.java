@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.reportmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportPriority;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportStatus;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportType;
+
+import java.time.Instant;
+
+@Data
+@Schema(description = "A report and the progress of its generation")
+public class ReportView {
+    @NotNull
+    private String id;
+
+    @NotNull
+    private ReportType type;
+
+    @NotNull
+    private ReportPriority priority;
+
+    @NotNull
+    private ReportStatus status;
+
+    @NotNull
+    private Instant submittedAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    @Schema(description = "Why the report failed")
+    private String error;
+
+    private ReportLinksView _links;
+}
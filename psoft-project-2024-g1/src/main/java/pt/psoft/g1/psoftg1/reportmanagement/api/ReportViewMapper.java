@@ -0,0 +1,40 @@
+package pt.psoft.g1.psoftg1.reportmanagement.api;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportJob;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportStatus;
+import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Mapper(componentModel = "spring")
+public abstract class ReportViewMapper extends MapperInterface {
+
+    @Mapping(target = "_links.self", source = "id", qualifiedByName = "reportLink")
+    @Mapping(target = "_links.result", source = ".", qualifiedByName = "reportResultLink")
+    public abstract ReportView toReportView(ReportJob job);
+
+    @Named(value = "reportLink")
+    protected Map<String, String> mapReportLink(String id) {
+        return reportLink(id);
+    }
+
+    @Named(value = "reportResultLink")
+    protected Map<String, String> mapReportResultLink(ReportJob job) {
+        return job.getStatus() == ReportStatus.DONE ? reportLink(job.getId() + "/result") : null;
+    }
+
+    private static Map<String, String> reportLink(String path) {
+        Map<String, String> reportLink = new HashMap<>();
+        String reportUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/reports/")
+                .path(path)
+                .toUriString();
+        reportLink.put("href", reportUri);
+        return reportLink;
+    }
+}
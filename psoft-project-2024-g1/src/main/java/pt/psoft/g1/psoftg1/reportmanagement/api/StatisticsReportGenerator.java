@@ -0,0 +1,58 @@
+package pt.psoft.g1.psoftg1.reportmanagement.api;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponents;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorService;
+import pt.psoft.g1.psoftg1.bookmanagement.api.BookViewMapper;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookService;
+import pt.psoft.g1.psoftg1.genremanagement.api.GenreViewMapper;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
+import pt.psoft.g1.psoftg1.genremanagement.services.GetAverageLendingsQuery;
+import pt.psoft.g1.psoftg1.readermanagement.api.ReaderViewMapper;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.reportmanagement.services.CreateReportRequest;
+import pt.psoft.g1.psoftg1.reportmanagement.services.ReportGenerator;
+import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.time.LocalDate;
+
+/**
+ * Generates reports with the same services and views as the statistics endpoints.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatisticsReportGenerator implements ReportGenerator {
+    private final BookService bookService;
+    private final BookViewMapper bookViewMapper;
+    private final AuthorService authorService;
+    private final ReaderService readerService;
+    private final ReaderViewMapper readerViewMapper;
+    private final GenreService genreService;
+    private final GenreViewMapper genreViewMapper;
+
+    @Override
+    public Object generate(CreateReportRequest request, UriComponents baseUri) {
+        return MapperInterface.withBaseUri(baseUri, () -> generate(request));
+    }
+
+    private Object generate(CreateReportRequest request) {
+        return switch (request.getType()) {
+            case BOOKS_TOP5 -> new ListResponse<>(bookViewMapper.toBookCountView(bookService.findTop5BooksLent()));
+            case AUTHORS_TOP5 -> new ListResponse<>(authorService.findTopAuthorByLendings());
+            case READERS_TOP5 -> new ListResponse<>(readerViewMapper.toReaderView(readerService.findTopReaders(5)));
+            case READERS_TOP5_BY_GENRE -> new ListResponse<>(readerViewMapper.toReaderCountViewList(readerService.findTopByGenre(
+                    request.getGenre(), LocalDate.parse(request.getStartDate()), LocalDate.parse(request.getEndDate()))));
+            case GENRES_TOP5 -> new ListResponse<>(genreViewMapper.toGenreBookCountView(genreService.findTopGenreByBooks()));
+            // a report has every genre, not a page of them
+            case GENRES_AVERAGE_LENDINGS -> new ListResponse<>(genreViewMapper.toGenreAvgLendingsView(genreService.getAverageLendings(
+                    new GetAverageLendingsQuery(request.getYear(), request.getMonth()), new Page(1, Integer.MAX_VALUE))));
+            case GENRES_LENDINGS_PER_MONTH_LAST_TWELVE_MONTHS -> new ListResponse<>(
+                    genreViewMapper.toGenreLendingsCountPerMonthView(genreService.getLendingsPerMonthLastYearByGenre()));
+            case GENRES_LENDINGS_AVERAGE_DURATION_PER_MONTH -> new ListResponse<>(genreViewMapper.toGenreLendingsAveragePerMonthView(
+                    genreService.getLendingsAverageDurationPerMonth(request.getStartDate(), request.getEndDate())));
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A report to generate, with the parameters of its statistic")
+public class CreateReportRequest {
+    @NotNull
+    private ReportType type;
+
+    private ReportPriority priority;
+
+    private String genre;
+
+    @Schema(description = "Start date, as YYYY-MM-DD")
+    private String startDate;
+
+    @Schema(description = "End date, as YYYY-MM-DD")
+    private String endDate;
+
+    private Integer year;
+
+    @Min(value = 1)
+    @Max(value = 12)
+    private Integer month;
+}
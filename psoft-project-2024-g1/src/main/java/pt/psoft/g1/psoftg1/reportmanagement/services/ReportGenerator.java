@@ -0,0 +1,15 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import org.springframework.web.util.UriComponents;
+
+/**
+ * Computes the statistic of a report, as the body the endpoint of that statistic answers with.
+ */
+public interface ReportGenerator {
+    /**
+     * @param request - statistic of the report, with its parameters already validated
+     * @param baseUri - address the report was requested at, which the links of the report are built from
+     * @return the body of the report, to be written as JSON
+     */
+    Object generate(CreateReportRequest request, UriComponents baseUri);
+}
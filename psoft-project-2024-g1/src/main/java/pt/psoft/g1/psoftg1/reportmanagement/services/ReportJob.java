@@ -0,0 +1,106 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A report requested by a user, and the progress of its generation.
+ * <p>
+ * Status changes are synchronized, so a job cancelled while queued never starts, and the result of a job
+ * cancelled while running is discarded.
+ */
+@Getter
+public class ReportJob {
+    private final String id;
+    private final CreateReportRequest request;
+    private final ReportPriority priority;
+    private final String owner;
+    private final Instant submittedAt;
+    // orders jobs of the same priority by submission
+    private final long sequence;
+
+    private ReportStatus status = ReportStatus.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+    private Path result;
+
+    ReportJob(CreateReportRequest request, String owner, Instant submittedAt, long sequence) {
+        this.id = UUID.randomUUID().toString();
+        this.request = request;
+        this.priority = request.getPriority() == null ? ReportPriority.NORMAL : request.getPriority();
+        this.owner = owner;
+        this.submittedAt = submittedAt;
+        this.sequence = sequence;
+    }
+
+    public ReportType getType() {
+        return request.getType();
+    }
+
+    public synchronized ReportStatus getStatus() {
+        return status;
+    }
+
+    public synchronized Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    synchronized Path getResult() {
+        return result;
+    }
+
+    /**
+     * @return whether the job was still queued, and so is now running
+     */
+    synchronized boolean start(Instant now) {
+        if (status != ReportStatus.QUEUED)
+            return false;
+        status = ReportStatus.RUNNING;
+        startedAt = now;
+        return true;
+    }
+
+    /**
+     * @return whether the job was still running, and so has now the result
+     */
+    synchronized boolean complete(Path result, Instant now) {
+        if (status != ReportStatus.RUNNING)
+            return false;
+        status = ReportStatus.DONE;
+        this.result = result;
+        finishedAt = now;
+        return true;
+    }
+
+    synchronized void fail(String error, Instant now) {
+        if (status != ReportStatus.RUNNING)
+            return;
+        status = ReportStatus.FAILED;
+        this.error = error;
+        finishedAt = now;
+    }
+
+    /**
+     * @return the status the job had before being cancelled
+     */
+    synchronized ReportStatus cancel(Instant now) {
+        final ReportStatus previous = status;
+        if (!previous.isFinished()) {
+            status = ReportStatus.CANCELLED;
+            finishedAt = now;
+        }
+        return previous;
+    }
+}
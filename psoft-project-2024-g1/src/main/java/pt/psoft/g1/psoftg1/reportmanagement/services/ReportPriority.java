@@ -0,0 +1,10 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+/**
+ * Order report jobs wait to run in, jobs of the same priority running in order of submission.
+ */
+public enum ReportPriority {
+    LOW,
+    NORMAL,
+    HIGH
+}
@@ -0,0 +1,36 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import org.springframework.core.io.Resource;
+
+public interface ReportService {
+    /**
+     * Queues the generation of a report.
+     * @param request - statistic of the report, with its parameters
+     * @param owner   - name of the user the report is for, the only one who can see it
+     * @return the queued job
+     */
+    ReportJob submit(CreateReportRequest request, String owner);
+
+    /**
+     * @throws pt.psoft.g1.psoftg1.exceptions.NotFoundException if the user has no job with that id
+     */
+    ReportJob findById(String id, String owner);
+
+    /**
+     * Cancels a job that is queued or running. Cancelling a finished job has no effect.
+     * @throws pt.psoft.g1.psoftg1.exceptions.NotFoundException if the user has no job with that id
+     */
+    ReportJob cancel(String id, String owner);
+
+    /**
+     * @return the file the result of a job was written to
+     * @throws pt.psoft.g1.psoftg1.exceptions.NotFoundException if the user has no job with that id
+     * @throws pt.psoft.g1.psoftg1.exceptions.ConflictException if the job did not finish successfully
+     */
+    Resource getResult(String id, String owner);
+
+    /**
+     * Removes the jobs, and their results, that finished more than {@code reportRetentionHours} ago.
+     */
+    void cleanUp();
+}
@@ -0,0 +1,267 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Generates reports in the background, on the {@code reportExecutor}, highest priority first.
+ * <p>
+ * At most {@code reportMaxQueued} reports wait for a thread, further ones are refused until the queue drains.
+ * Each report is written once to a JSON file in {@code reportDirectory}, which every download of it reads,
+ * and kept for {@code reportRetentionHours} after it finishes. Jobs are kept in memory, so the files of
+ * a previous run are removed by the first clean up.
+ * <p>
+ * A queued report that is cancelled never runs. The queries of a running report cannot be interrupted,
+ * so a report cancelled while running still runs to the end, but its result is discarded.
+ * <p>
+ * Reports are generated outside of any request, so the links in them are built from the address
+ * the report was requested at, which is given to the {@link ReportGenerator}.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class ReportServiceImpl implements ReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportServiceImpl.class);
+    private static final String GENERATION_FAILED = "Report generation failed";
+
+    private final ThreadPoolExecutor reportExecutor;
+    private final ReportGenerator reportGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    @Value("${reportMaxQueued}")
+    private int maxQueued;
+    @Value("${reportDirectory}")
+    private String directory;
+    @Value("${reportRetentionHours}")
+    private long retentionHours;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // tasks not yet taken by a thread
+    private final Map<String, ReportTask> queued = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public ReportServiceImpl(ThreadPoolExecutor reportExecutor, ReportGenerator reportGenerator,
+                             TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
+        this(reportExecutor, reportGenerator, transactionTemplate, objectMapper, Clock.systemUTC());
+    }
+
+    ReportServiceImpl(ThreadPoolExecutor reportExecutor, ReportGenerator reportGenerator,
+                      TransactionTemplate transactionTemplate, ObjectMapper objectMapper, Clock clock) {
+        this.reportExecutor = reportExecutor;
+        this.reportGenerator = reportGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    @Override
+    public ReportJob submit(CreateReportRequest request, String owner) {
+        validate(request);
+        final ReportJob job = new ReportJob(request, owner, clock.instant(), sequence.getAndIncrement());
+        final ReportTask task = new ReportTask(job, baseUri());
+
+        synchronized (queued) {
+            if (queued.size() >= maxQueued)
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many reports waiting, try again later");
+            queued.put(job.getId(), task);
+        }
+        jobs.put(job.getId(), job);
+        try {
+            reportExecutor.execute(task);
+        } catch (RuntimeException e) {
+            queued.remove(job.getId());
+            jobs.remove(job.getId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Reports are not being accepted", e);
+        }
+        return job;
+    }
+
+    @Override
+    public ReportJob findById(String id, String owner) {
+        final ReportJob job = jobs.get(id);
+        if (job == null || !job.getOwner().equals(owner))
+            throw new NotFoundException(ReportJob.class, id);
+        return job;
+    }
+
+    @Override
+    public ReportJob cancel(String id, String owner) {
+        final ReportJob job = findById(id, owner);
+        final ReportStatus previous = job.cancel(clock.instant());
+        if (previous == ReportStatus.QUEUED) {
+            final ReportTask task = queued.remove(id);
+            if (task != null)
+                reportExecutor.remove(task);
+        }
+        return job;
+    }
+
+    @Override
+    public Resource getResult(String id, String owner) {
+        final ReportJob job = findById(id, owner);
+        if (job.getStatus() != ReportStatus.DONE)
+            throw new ConflictException("Report is not ready, its status is " + job.getStatus());
+        return new FileSystemResource(job.getResult());
+    }
+
+    @Override
+    @Scheduled(cron = "${reportCleanupCron}")
+    public void cleanUp() {
+        final Instant expiry = clock.instant().minus(Duration.ofHours(retentionHours));
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(expiry));
+
+        final Path dir = Path.of(directory);
+        if (!Files.isDirectory(dir))
+            return;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> !jobs.containsKey(idOf(file))).forEach(ReportServiceImpl::delete);
+        } catch (IOException e) {
+            logger.warn("Could not clean up reports in {}", dir, e);
+        }
+    }
+
+    private void validate(CreateReportRequest request) {
+        if (request.getType() == null)
+            throw new IllegalArgumentException("Report type is required");
+        switch (request.getType()) {
+            case READERS_TOP5_BY_GENRE -> {
+                if (request.getGenre() == null || request.getGenre().isBlank())
+                    throw new IllegalArgumentException("Genre is required");
+                validateDates(request);
+            }
+            case GENRES_LENDINGS_AVERAGE_DURATION_PER_MONTH -> validateDates(request);
+            case GENRES_AVERAGE_LENDINGS -> {
+                if (request.getYear() == null || request.getMonth() == null)
+                    throw new IllegalArgumentException("Year and month are required");
+                if (request.getMonth() < 1 || request.getMonth() > 12)
+                    throw new IllegalArgumentException("Month must be between 1 and 12");
+            }
+            default -> { }
+        }
+    }
+
+    private static void validateDates(CreateReportRequest request) {
+        if (request.getStartDate() == null || request.getEndDate() == null)
+            throw new IllegalArgumentException("Start and end dates are required");
+        final LocalDate startDate;
+        final LocalDate endDate;
+        try {
+            startDate = LocalDate.parse(request.getStartDate());
+            endDate = LocalDate.parse(request.getEndDate());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+        }
+        if (startDate.isAfter(endDate))
+            throw new IllegalArgumentException("Start date cannot be after end date");
+    }
+
+    private static UriComponents baseUri() {
+        if (RequestContextHolder.getRequestAttributes() == null)
+            return UriComponentsBuilder.fromHttpUrl("http://localhost").build();
+        return ServletUriComponentsBuilder.fromCurrentContextPath().build();
+    }
+
+    private void run(ReportTask task) {
+        final ReportJob job = task.job;
+        queued.remove(job.getId());
+        if (!job.start(clock.instant()))
+            return;
+        try {
+            final Object report = transactionTemplate.execute(status -> reportGenerator.generate(job.getRequest(), task.baseUri));
+            final Path file = write(job.getId(), report);
+            if (!job.complete(file, clock.instant()))
+                delete(file);
+        } catch (Exception e) {
+            // the cause is only logged, as its message may reveal SQL, file paths or data of other readers
+            logger.warn("Report {} failed", job.getId(), e);
+            job.fail(GENERATION_FAILED, clock.instant());
+        }
+    }
+
+    private Path write(String id, Object report) throws IOException {
+        final Path dir = Files.createDirectories(Path.of(directory));
+        final Path temp = dir.resolve(id + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                objectMapper.writeValue(out, report);
+            }
+            return Files.move(temp, dir.resolve(id + ".json"), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(temp);
+            throw e;
+        }
+    }
+
+    private static String idOf(Path file) {
+        final String name = file.getFileName().toString();
+        final int extension = name.lastIndexOf('.');
+        return extension < 0 ? name : name.substring(0, extension);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete report {}", file, e);
+        }
+    }
+
+    /**
+     * Runs a job on the executor, ordered by priority, then by submission.
+     */
+    private final class ReportTask implements Runnable, Comparable<ReportTask> {
+        private final ReportJob job;
+        private final UriComponents baseUri;
+
+        private ReportTask(ReportJob job, UriComponents baseUri) {
+            this.job = job;
+            this.baseUri = baseUri;
+        }
+
+        @Override
+        public void run() {
+            ReportServiceImpl.this.run(this);
+        }
+
+        @Override
+        public int compareTo(ReportTask other) {
+            final int byPriority = other.job.getPriority().compareTo(job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(job.getSequence(), other.job.getSequence());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+public enum ReportStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+/**
+ * The statistics a report can be generated for, each the same as the endpoint it is named after.
+ */
+public enum ReportType {
+    /**{@code GET /api/books/top5}*/
+    BOOKS_TOP5,
+    /**{@code GET /api/authors/top5}*/
+    AUTHORS_TOP5,
+    /**{@code GET /api/readers/top5}*/
+    READERS_TOP5,
+    /**{@code GET /api/readers/top5ByGenre}, needs {@code genre}, {@code startDate} and {@code endDate}*/
+    READERS_TOP5_BY_GENRE,
+    /**{@code GET /api/genres/top5}*/
+    GENRES_TOP5,
+    /**{@code POST /api/genres/avgLendingsPerGenre}, every genre at once, needs {@code year} and {@code month}*/
+    GENRES_AVERAGE_LENDINGS,
+    /**{@code GET /api/genres/lendingsPerMonthLastTwelveMonths}*/
+    GENRES_LENDINGS_PER_MONTH_LAST_TWELVE_MONTHS,
+    /**{@code GET /api/genres/lendingsAverageDurationPerMonth}, needs {@code startDate} and {@code endDate}*/
+    GENRES_LENDINGS_AVERAGE_DURATION_PER_MONTH
+}
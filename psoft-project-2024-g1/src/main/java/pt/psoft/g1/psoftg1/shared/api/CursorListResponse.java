@@ -0,0 +1,13 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CursorListResponse<T> {
+	private List<T> items;
+	private String next;
+}
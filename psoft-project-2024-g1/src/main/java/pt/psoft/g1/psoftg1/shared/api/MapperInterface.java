@@ -2,6 +2,8 @@ package pt.psoft.g1.psoftg1.shared.api;
 
 import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
@@ -10,8 +12,24 @@ import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public abstract class MapperInterface {
+    // address links are built from when mapping outside of a request
+    private static final ThreadLocal<UriComponents> baseUri = new ThreadLocal<>();
+
+    /**
+     * Maps views outside of a request, with their links built from {@code baseUri} instead of the current request.
+     * @param baseUri - scheme, host, port and context path of the links
+     */
+    public static <T> T withBaseUri(UriComponents baseUri, Supplier<T> mapping) {
+        MapperInterface.baseUri.set(baseUri);
+        try {
+            return mapping.get();
+        } finally {
+            MapperInterface.baseUri.remove();
+        }
+    }
 
     public <T> String map(final T value) {
         if (value == null)
@@ -32,45 +50,58 @@ public abstract class MapperInterface {
 
     @Named(value = "lendingLink")
     protected Map<String, String> mapLendingLink(Lending lending){
-        Map<String, String> lendingLink = new HashMap<>();
-        String lendingUri = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/lendings/")
-                .path(lending.getLendingNumber())
-                .toUriString();
-        lendingLink.put("href", lendingUri);
-        return lendingLink;
+        return mapLendingNumberLink(lending.getLendingNumber());
+    }
+
+    @Named(value = "lendingNumberLink")
+    protected Map<String, String> mapLendingNumberLink(String lendingNumber){
+        return link("/api/lendings/", lendingNumber);
     }
 
     @Named(value = "bookLink")
     protected Map<String, String> mapBookLink(Book book){
-        Map<String, String> bookLink = new HashMap<>();
-        String bookUri = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/books/")
-                .path(book.getIsbn())
-                .toUriString();
-        bookLink.put("href", bookUri);
-        return bookLink;
+        return mapIsbnLink(book.getIsbn());
+    }
+
+    @Named(value = "isbnLink")
+    protected Map<String, String> mapIsbnLink(String isbn){
+        return link("/api/books/", isbn);
     }
 
     @Named(value = "readerLink")
     protected Map<String, String> mapReaderLink(ReaderDetails readerDetails){
-        Map<String, String> readerLink = new HashMap<>();
-        String readerUri = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/api/readers/")
-                .path(readerDetails.getReaderNumber())
+        return mapReaderNumberLink(readerDetails.getReaderNumber());
+    }
+
+    @Named(value = "readerNumberLink")
+    protected Map<String, String> mapReaderNumberLink(String readerNumber){
+        return link("/api/readers/", readerNumber);
+    }
+
+    private static Map<String, String> link(String path, String id){
+        Map<String, String> link = new HashMap<>();
+        String uri = fromContextPath()
+                .path(path)
+                .path(id)
                 .toUriString();
-        readerLink.put("href", readerUri);
-        return readerLink;
+        link.put("href", uri);
+        return link;
     }
 
     @Named(value = "authorLink")
     protected Map<String, String> mapAuthorLink(Author author){
         Map<String, String> authorLink = new HashMap<>();
-        String authorUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+        String authorUri = fromContextPath()
                 .path("/api/authors/")
                 .path(author.getAuthorNumber().toString())
                 .toUriString();
         authorLink.put("href", authorUri);
         return authorLink;
     }
+
+    private static UriComponentsBuilder fromContextPath() {
+        final UriComponents base = baseUri.get();
+        return base != null ? UriComponentsBuilder.newInstance().uriComponents(base)
+                : ServletUriComponentsBuilder.fromCurrentContextPath();
+    }
 }
@@ -0,0 +1,174 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreChangedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsCreatedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsReturnedEvent;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Reuses the answers of the statistics endpoints, which only change when lendings, or the genres of books, do.
+ * <p>
+ * Answers are kept per endpoint, parameters and day, as several statistics are relative to the current date,
+ * and per context path, as views link to it. They are dropped as soon as a lending is created or returned,
+ * or a book changes genre, and otherwise kept for {@code statisticsCacheTtlSeconds},
+ * up to {@code statisticsCacheMaxEntries} answers.
+ * Concurrent requests for an answer that is not kept wait for a single computation of it.
+ * Failed computations are not kept, so they are run again on the next request.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class StatisticsCache {
+    @Value("${statisticsCacheTtlSeconds}")
+    private long ttlSeconds;
+    @Value("${statisticsCacheMaxEntries}")
+    private int maxEntries;
+
+    private final Clock clock;
+    // insertion order is also expiry order, as every entry lives for the same time
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    public StatisticsCache() {
+        this(Clock.systemDefaultZone());
+    }
+
+    StatisticsCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param name       - name of the statistic, e.g. the endpoint
+     * @param parameters - normalized parameters of the statistic
+     * @param compute    - computes the answer, only called if it is not kept
+     * @return the kept answer, or the one just computed
+     */
+    public <T> T get(String name, List<?> parameters, Supplier<T> compute) {
+        final Key key = new Key(name, parameters, LocalDate.now(clock), contextPath());
+        final FutureTask<Object> task;
+        final boolean computing;
+        synchronized (this) {
+            evictExpired();
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                task = entry.task;
+                computing = false;
+            } else {
+                task = new FutureTask<>(compute::get);
+                computing = true;
+                entries.put(key, new Entry(task, clock.instant().plusSeconds(ttlSeconds)));
+                final Iterator<Entry> it = entries.values().iterator();
+                while (entries.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+
+        if (computing)
+            task.run();
+        return result(key, task);
+    }
+
+    /**
+     * Drops every kept answer.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    // after the in-memory statistics are updated, so no answer is computed again from their old state
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLendingsCreated(LendingsCreatedEvent event) {
+        invalidate();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLendingsReturned(LendingsReturnedEvent event) {
+        invalidate();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookGenreChanged(BookGenreChangedEvent event) {
+        invalidate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T result(Key key, FutureTask<Object> task) {
+        try {
+            return (T) task.get();
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                final Entry entry = entries.get(key);
+                if (entry != null && entry.task == task)
+                    entries.remove(key);
+            }
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key.name, e);
+        }
+    }
+
+    private void evictExpired() {
+        final Instant now = clock.instant();
+        final Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && !it.next().expiresAt.isAfter(now)) {
+            it.remove();
+        }
+    }
+
+    private static String contextPath() {
+        try {
+            return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+        } catch (IllegalStateException e) {
+            // not within a request
+            return "";
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class Key {
+        private final String name;
+        private final List<?> parameters;
+        private final LocalDate day;
+        private final String contextPath;
+
+        private Key(String name, List<?> parameters, LocalDate day, String contextPath) {
+            this.name = name;
+            this.parameters = new ArrayList<>(parameters);
+            this.day = day;
+            this.contextPath = contextPath;
+        }
+    }
+
+    private static final class Entry {
+        private final FutureTask<Object> task;
+        private final Instant expiresAt;
+
+        private Entry(FutureTask<Object> task, Instant expiresAt) {
+            this.task = task;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of results, with the number of results in every page.
+ */
+@Getter
+@AllArgsConstructor
+public class CountedPage<T> {
+    private final List<T> items;
+    private final long total;
+}
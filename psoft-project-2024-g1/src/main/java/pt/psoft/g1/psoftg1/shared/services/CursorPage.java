@@ -0,0 +1,19 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A slice of results read with keyset pagination.
+ * <p>
+ * {@code next} is an opaque token to pass back to read the following slice, {@code null} when there
+ * are no more results.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String next;
+}
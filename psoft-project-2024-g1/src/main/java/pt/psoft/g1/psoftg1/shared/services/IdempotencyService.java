@@ -0,0 +1,161 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Answers retried requests that carry an {@code Idempotency-Key} with the response of the first attempt.
+ * <p>
+ * Successful responses are kept in memory for {@code idempotencyKeyTtlSeconds}, up to {@code idempotencyMaxKeys}
+ * keys, the oldest being evicted first. Failed attempts are not kept, so they can be retried.
+ * Requests with the same key are serialized, so a retry that arrives while the first attempt is still
+ * running waits for its response instead of running again.
+ * <p>
+ * Each response is kept with a hash of the request it answers, its method, path and body, so a key that is reused
+ * for a different request is refused with 422 instead of answering it with the response of another request.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class IdempotencyService {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Value("${idempotencyKeyTtlSeconds}")
+    private long ttlSeconds;
+    @Value("${idempotencyMaxKeys}")
+    private int maxKeys;
+
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final StripedLock keyLocks = new StripedLock(64);
+    // insertion order is also expiry order, as every entry lives for the same time
+    private final LinkedHashMap<String, StoredResponse> responses = new LinkedHashMap<>();
+
+    @Autowired
+    public IdempotencyService(ObjectMapper objectMapper) {
+        this(objectMapper, Clock.systemUTC());
+    }
+
+    IdempotencyService(ObjectMapper objectMapper, Clock clock) {
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+    }
+
+    /**
+     * @param idempotencyKey - value of the {@code Idempotency-Key} header, {@code null} if the request has none
+     * @param owner          - who the key belongs to, e.g. the authenticated user
+     * @param request        - method and path of the request, with any header that changes its outcome
+     * @param body           - body of the request, compared as JSON
+     * @param action         - produces the response, only called if there is no stored response
+     * @return the stored response if the request is a replay, otherwise the response of {@code action}
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String owner, String request, Object body,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank())
+            return action.get();
+        if (idempotencyKey.length() > MAX_KEY_LENGTH)
+            throw new IllegalArgumentException("Idempotency key cannot be longer than " + MAX_KEY_LENGTH + " characters");
+
+        final String key = owner + " " + idempotencyKey;
+        final String fingerprint = fingerprint(request, body);
+        final Lock lock = keyLocks.get(key);
+        lock.lock();
+        try {
+            final StoredResponse stored = find(key);
+            if (stored != null) {
+                if (!stored.fingerprint.equals(fingerprint))
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            "Idempotency key was already used for a different request");
+                return replayed(stored.response());
+            }
+
+            final ResponseEntity<T> response = action.get();
+            if (response.getStatusCode().is2xxSuccessful())
+                store(key, fingerprint, response);
+            return response;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private synchronized StoredResponse find(String key) {
+        evictExpired();
+        return responses.get(key);
+    }
+
+    private synchronized void store(String key, String fingerprint, ResponseEntity<?> response) {
+        evictExpired();
+        responses.put(key, new StoredResponse(response, fingerprint, clock.instant().plusSeconds(ttlSeconds)));
+        final Iterator<StoredResponse> it = responses.values().iterator();
+        while (responses.size() > maxKeys && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void evictExpired() {
+        final Instant now = clock.instant();
+        final Iterator<Map.Entry<String, StoredResponse>> it = responses.entrySet().iterator();
+        while (it.hasNext() && !it.next().getValue().expiresAt.isAfter(now)) {
+            it.remove();
+        }
+    }
+
+    private String fingerprint(String request, Object body) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash the request", e);
+        }
+    }
+
+    private static <T> ResponseEntity<T> replayed(ResponseEntity<T> stored) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.putAll(stored.getHeaders());
+        headers.set(IDEMPOTENT_REPLAYED, "true");
+        return new ResponseEntity<>(stored.getBody(), headers, stored.getStatusCode());
+    }
+
+    private static final class StoredResponse {
+        private final ResponseEntity<?> response;
+        private final String fingerprint;
+        private final Instant expiresAt;
+
+        private StoredResponse(ResponseEntity<?> response, String fingerprint, Instant expiresAt) {
+            this.response = response;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> ResponseEntity<T> response() {
+            return (ResponseEntity<T>) response;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.StaleObjectStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries version-checked updates that lost a race against a concurrent change.
+ * <p>
+ * Only updates whose expected version was current when the request arrived are retried, and only while the
+ * concurrent changes leave the fields written by the update as they were. The entity is then reloaded and the
+ * update applied again at its new version, after a jittered exponential backoff. The backoff is waited on the
+ * request thread, so each wait is capped at {@value #MAX_BACKOFF_MILLIS} ms. A client sending an old version
+ * still gets a conflict, as there is no way to know which fields changed since.
+ * <p>
+ * Disabled unless {@code optimisticLockRetryEnabled} is set. Retries are counted in the
+ * {@code optimistic.lock.retries} metric and given up retries in {@code optimistic.lock.retry.failures}.
+ */
+@Service
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class OptimisticLockRetry {
+    public static final long MAX_BACKOFF_MILLIS = 100;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${optimisticLockRetryEnabled}")
+    private boolean enabled;
+    @Value("${optimisticLockRetryMaxAttempts}")
+    private int maxAttempts;
+    @Value("${optimisticLockRetryBackoffMillis}")
+    private long backoffMillis;
+
+    /**
+     * @param operation      - name of the update, used to tag the metrics
+     * @param desiredVersion - version the client expects the entity to be at
+     * @param update         - the update to apply
+     * @return the result of the update
+     */
+    public <E, T> T execute(String operation, long desiredVersion, RetryableUpdate<E, T> update) {
+        if (!enabled)
+            return update.apply(desiredVersion);
+
+        final E before = update.load();
+        if (update.versionOf(before) != desiredVersion)
+            return update.apply(desiredVersion);
+        final Object expected = update.touchedFields(before);
+
+        long version = desiredVersion;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return update.apply(version);
+            } catch (ObjectOptimisticLockingFailureException | StaleObjectStateException | ConflictException e) {
+                final E current = update.load();
+                if (update.versionOf(current) == version)
+                    throw e;
+                if (!Objects.equals(update.touchedFields(current), expected)) {
+                    fail(operation, "conflicting");
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    fail(operation, "exhausted");
+                    throw e;
+                }
+                meterRegistry.counter("optimistic.lock.retries", "operation", operation).increment();
+                backoff(attempt, e);
+                version = update.versionOf(current);
+            }
+        }
+    }
+
+    private void fail(String operation, String reason) {
+        meterRegistry.counter("optimistic.lock.retry.failures", "operation", operation, "reason", reason).increment();
+    }
+
+    private <X extends RuntimeException> void backoff(int attempt, X conflict) {
+        final long ceiling = Math.min(backoffMillis << Math.min(attempt - 1, 10), MAX_BACKOFF_MILLIS);
+        // half fixed and half random, so retries of concurrent requests spread out
+        final long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+/**
+ * An update of a versioned entity that can be applied again after a concurrent change,
+ * as long as that change did not touch the fields written by the update.
+ *
+ * @param <E> type of the updated entity
+ * @param <T> result of the update
+ */
+public interface RetryableUpdate<E, T> {
+    /**
+     * @return the current state of the entity
+     */
+    E load();
+
+    long versionOf(E entity);
+
+    /**
+     * @return the values of the fields this update writes, compared between attempts
+     */
+    Object touchedFields(E entity);
+
+    /**
+     * Applies the update in its own transaction.
+     * @param version - version the entity is expected to be at
+     * @return the result of the update
+     */
+    T apply(long version);
+}
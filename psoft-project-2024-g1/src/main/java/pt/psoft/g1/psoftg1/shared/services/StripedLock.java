@@ -0,0 +1,58 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by an unbounded set of keys.
+ * <p>
+ * Operations on the same key always use the same lock, while operations on different keys
+ * only contend when their keys happen to fall on the same stripe.
+ */
+public class StripedLock {
+    private final Lock[] stripes;
+
+    /**
+     * @param stripes - number of locks, rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("There must be at least one stripe");
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes)
+            size <<= 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(Object key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * Locks that must be held to operate on several keys at once.
+     * <p>
+     * Each lock appears once and always in the same order, so threads acquiring them
+     * in the returned order cannot deadlock with each other.
+     */
+    public List<Lock> getAll(Collection<?> keys) {
+        final SortedSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(indexOf(key));
+        }
+        final List<Lock> locks = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            locks.add(stripes[index]);
+        }
+        return locks;
+    }
+
+    private int indexOf(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+}
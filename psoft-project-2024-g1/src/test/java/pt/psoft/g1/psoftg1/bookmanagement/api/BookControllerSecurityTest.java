@@ -0,0 +1,37 @@
+package pt.psoft.g1.psoftg1.bookmanagement.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import pt.psoft.g1.psoftg1.usermanagement.model.Role;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookControllerSecurityTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testReaderCannotGetTopBooks() throws Exception {
+        mockMvc.perform(get("/api/books/top").with(as(Role.READER))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/books/top5").with(as(Role.READER))).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testLibrarianGetsTopBooks() throws Exception {
+        mockMvc.perform(get("/api/books/top").param("period", "week").with(as(Role.LIBRARIAN))).andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/top5").with(as(Role.LIBRARIAN))).andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor as(String role) {
+        return jwt().authorities(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+}
@@ -0,0 +1,192 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookCacheTest {
+    private static final String HOBBIT = "9789720706386";
+    private static final String SILMARILLION = "9789722328296";
+    private static final String CONTOS = "9782826012092";
+
+    private final Genre fantasia = new Genre("Fantasia");
+    private final Author tolkien = author(1L, "John Ronald Reuel Tolkien");
+    private final Author christopher = author(2L, "Christopher Tolkien");
+
+    private BookRepository bookRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private BookCache bookCache;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        bookCache = new BookCache(bookRepository, meterRegistry);
+        ReflectionTestUtils.setField(bookCache, "maxEntries", 2);
+        bookCache.registerSize();
+    }
+
+    @Test
+    void testBookIsLoadedOnce() {
+        final Book hobbit = stored(HOBBIT, tolkien, 0L);
+
+        assertSame(hobbit, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        assertSame(hobbit, bookCache.findByIsbn(HOBBIT).orElseThrow());
+
+        verify(bookRepository, times(1)).findWithDetailsByIsbnIn(List.of(HOBBIT));
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+        assertEquals(1, meterRegistry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    void testMissingBookIsNotKept() {
+        when(bookRepository.findWithDetailsByIsbnIn(List.of(HOBBIT))).thenReturn(List.of());
+
+        assertEquals(Optional.empty(), bookCache.findByIsbn(HOBBIT));
+        assertEquals(Optional.empty(), bookCache.findByIsbn(HOBBIT));
+        assertEquals(0, bookCache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedBookIsEvicted() {
+        stored(HOBBIT, tolkien, 0L);
+        stored(SILMARILLION, christopher, 0L);
+        stored(CONTOS, christopher, 0L);
+
+        bookCache.findByIsbn(HOBBIT);
+        bookCache.findByIsbn(SILMARILLION);
+        bookCache.findByIsbn(HOBBIT);
+        bookCache.findByIsbn(CONTOS);
+
+        assertEquals(2, bookCache.size());
+        assertEquals(1, evictions("size"));
+        bookCache.findByIsbn(HOBBIT);
+        verify(bookRepository, times(1)).findWithDetailsByIsbnIn(List.of(HOBBIT));
+        bookCache.findByIsbn(SILMARILLION);
+        verify(bookRepository, times(2)).findWithDetailsByIsbnIn(List.of(SILMARILLION));
+    }
+
+    @Test
+    void testChangedBookIsLoadedAgain() {
+        stored(HOBBIT, tolkien, 0L);
+        bookCache.findByIsbn(HOBBIT);
+
+        final Book changed = stored(HOBBIT, tolkien, 1L);
+        bookCache.bookChanged(HOBBIT, 1L);
+
+        assertSame(changed, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        assertSame(changed, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        assertEquals(1, evictions("change"));
+    }
+
+    @Test
+    void testVersionOlderThanCommittedChangeIsNotKept() {
+        bookCache.bookChanged(HOBBIT, 2L);
+        final Book stale = stored(HOBBIT, tolkien, 1L);
+
+        assertSame(stale, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        assertEquals(0, bookCache.size());
+
+        stored(HOBBIT, tolkien, 2L);
+        bookCache.findByIsbn(HOBBIT);
+        assertEquals(1, bookCache.size());
+    }
+
+    @Test
+    void testLookupOverlappingForgottenChangeIsNotKept() {
+        final Book stale = book(HOBBIT, tolkien, 0L);
+        when(bookRepository.findWithDetailsByIsbnIn(List.of(HOBBIT))).thenAnswer(inv -> {
+            // the change commits while the lookup runs, and its version is forgotten before the lookup ends
+            bookCache.bookChanged(HOBBIT, 1L);
+            bookCache.bookChanged(SILMARILLION, 0L);
+            bookCache.bookChanged(CONTOS, 0L);
+            return List.of(stale);
+        });
+
+        assertSame(stale, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        assertEquals(0, bookCache.size());
+    }
+
+    @Test
+    void testDeletedBookIsNotKeptUntilSavedAgain() {
+        stored(HOBBIT, tolkien, 3L);
+        bookCache.bookDeleted(HOBBIT);
+
+        bookCache.findByIsbn(HOBBIT);
+        assertEquals(0, bookCache.size());
+
+        stored(HOBBIT, tolkien, 0L);
+        bookCache.bookChanged(HOBBIT, 0L);
+        bookCache.findByIsbn(HOBBIT);
+        assertEquals(1, bookCache.size());
+    }
+
+    @Test
+    void testBooksOfChangedAuthorAreEvicted() {
+        stored(HOBBIT, tolkien, 0L);
+        stored(SILMARILLION, christopher, 0L);
+        bookCache.findByIsbn(HOBBIT);
+        bookCache.findByIsbn(SILMARILLION);
+
+        bookCache.authorChanged(2L);
+
+        assertEquals(1, bookCache.size());
+        bookCache.findByIsbn(HOBBIT);
+        verify(bookRepository, times(1)).findWithDetailsByIsbnIn(List.of(HOBBIT));
+    }
+
+    @Test
+    void testBookLoadedInTransactionIsNotKept() {
+        final Book hobbit = stored(HOBBIT, tolkien, 0L);
+        when(bookRepository.findByIsbn(HOBBIT)).thenReturn(Optional.of(hobbit));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertSame(hobbit, bookCache.findByIsbn(HOBBIT).orElseThrow());
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(0, bookCache.size());
+        verify(bookRepository, never()).findWithDetailsByIsbnIn(any());
+    }
+
+    private Book stored(String isbn, Author author, long version) {
+        final Book book = book(isbn, author, version);
+        when(bookRepository.findWithDetailsByIsbnIn(List.of(isbn))).thenReturn(List.of(book));
+        return book;
+    }
+
+    private Book book(String isbn, Author author, long version) {
+        final Book book = new Book(isbn, "Título", null, fantasia, List.of(author), null);
+        ReflectionTestUtils.setField(book, "version", version);
+        return book;
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("cache.evictions").tag("cause", cause).counter().count();
+    }
+
+    private static Author author(long authorNumber, String name) {
+        final Author author = new Author(name, "Escritor", null);
+        ReflectionTestUtils.setField(author, "authorNumber", authorNumber);
+        return author;
+    }
+}
@@ -0,0 +1,20 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchCursorTest {
+    @Test
+    void ensureCursorRoundTrips() {
+        final var cursor = BookSearchCursor.decode(new BookSearchCursor("Lisboa: Guia", "9782826012092").encode());
+        assertEquals("Lisboa: Guia", cursor.getTitle());
+        assertEquals("9782826012092", cursor.getIsbn());
+    }
+
+    @Test
+    void ensureInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BookSearchCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> BookSearchCursor.decode("Zm9v"));
+    }
+}
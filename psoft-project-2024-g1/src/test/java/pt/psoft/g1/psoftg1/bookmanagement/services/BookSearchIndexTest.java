@@ -0,0 +1,147 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BookSearchIndexTest {
+    private static final String HOBBIT = "9789720049299";
+    private static final String SILMARILLION = "9789722328296";
+    private static final String INFORMATICA = "9782826012092";
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        final BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.streamSearchFacts()).thenAnswer(inv -> List.of(
+                new BookSearchFact(HOBBIT, "O Hobbit", "Uma aventura na Terra Média", "Fantasia", 1L, "J. R. R. Tolkien"),
+                new BookSearchFact(SILMARILLION, "O Silmarillion", "Os dias antigos da Terra Média", "Fantasia", 1L, "J. R. R. Tolkien"),
+                new BookSearchFact(SILMARILLION, "O Silmarillion", "Os dias antigos da Terra Média", "Fantasia", 2L, "Christopher Tolkien"),
+                new BookSearchFact(INFORMATICA, "Introdução à Informática", null, "Informação", 3L, "Manuel Antunes")).stream());
+        final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        bookSearchIndex = new BookSearchIndex(bookRepository, transactionTemplate);
+        ReflectionTestUtils.setField(bookSearchIndex, "maxResults", 10);
+        bookSearchIndex.reload();
+    }
+
+    @Test
+    void testWordsAreFoldedAndMatchedByPrefix() {
+        assertEquals(List.of("introducao", "a", "informatica"), BookSearchIndex.words("Introdução à Informática!"));
+        assertEquals(List.of(INFORMATICA), bookSearchIndex.searchAll(new SearchBooksQuery("INFORMAT", null, null), null).getItems());
+        assertEquals(List.of(INFORMATICA), bookSearchIndex.searchAll(new SearchBooksQuery(null, "informacao", null), null).getItems());
+        assertEquals(List.of(), bookSearchIndex.searchAll(new SearchBooksQuery("obbit", null, null), null).getItems());
+    }
+
+    @Test
+    void testShortWordsOnlyMatchWholeWords() {
+        assertEquals(List.of(), bookSearchIndex.searchAny(new SearchBooksQuery("in", null, null), null, 10).getItems());
+        assertEquals(List.of(INFORMATICA), bookSearchIndex.searchAny(new SearchBooksQuery("int", null, null), null, 10).getItems());
+        assertEquals(List.of(INFORMATICA), bookSearchIndex.searchAll(new SearchBooksQuery("à", null, null), null).getItems());
+        assertEquals(List.of(HOBBIT, SILMARILLION), bookSearchIndex.searchAll(new SearchBooksQuery("o", null, null), null).getItems());
+    }
+
+    @Test
+    void testTitleRanksAboveDescription() {
+        final SearchBooksQuery query = new SearchBooksQuery();
+        query.setText("silmarillion terra");
+
+        assertEquals(List.of(SILMARILLION), bookSearchIndex.searchAll(query, null).getItems());
+
+        query.setText("hobbit");
+        query.setGenre("fantasia");
+        assertEquals(List.of(HOBBIT, SILMARILLION), bookSearchIndex.searchAny(query, null, 10).getItems());
+    }
+
+    @Test
+    void testEveryOrAnyCriterion() {
+        final SearchBooksQuery query = new SearchBooksQuery("hobbit", "informação", null);
+
+        assertEquals(List.of(), bookSearchIndex.searchAll(query, null).getItems());
+        assertEquals(List.of(INFORMATICA, HOBBIT), bookSearchIndex.searchAny(query, null, 10).getItems());
+        assertEquals(List.of(), bookSearchIndex.searchAny(new SearchBooksQuery(), null, 10).getItems());
+        assertEquals(List.of(INFORMATICA, HOBBIT, SILMARILLION), bookSearchIndex.searchAll(null, null).getItems());
+    }
+
+    @Test
+    void testPaging() {
+        final SearchBooksQuery query = new SearchBooksQuery(null, null, "tolkien");
+
+        assertEquals(List.of(HOBBIT), bookSearchIndex.searchAll(query, new Page(1, 1)).getItems());
+        assertEquals(List.of(SILMARILLION), bookSearchIndex.searchAll(query, new Page(2, 1)).getItems());
+        assertEquals(List.of(), bookSearchIndex.searchAll(query, new Page(3, 1)).getItems());
+        assertEquals(2, bookSearchIndex.searchAll(query, new Page(3, 1)).getTotal());
+    }
+
+    @Test
+    void testPageOutOfRangeIsRefused() {
+        final SearchBooksQuery query = new SearchBooksQuery(null, null, "tolkien");
+
+        assertThrows(IllegalArgumentException.class, () -> bookSearchIndex.searchAll(query, new Page(0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> bookSearchIndex.searchAll(query, new Page(1, 0)));
+        assertEquals(List.of(), bookSearchIndex.searchAll(query, new Page(10, 1)).getItems());
+        assertThrows(IllegalArgumentException.class, () -> bookSearchIndex.searchAll(query, new Page(11, 1)));
+    }
+
+    @Test
+    void testCursorContinuesAfterLastBook() {
+        final SearchBooksQuery query = new SearchBooksQuery("silmarillion", "fantasia", null);
+
+        final CursorPage<String> first = bookSearchIndex.searchAny(query, null, 1);
+        assertEquals(List.of(HOBBIT), first.getItems());
+        assertNotNull(first.getNext());
+
+        final CursorPage<String> second = bookSearchIndex.searchAny(query, BookSearchCursor.decode(first.getNext()), 1);
+        assertEquals(List.of(SILMARILLION), second.getItems());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void testAnyCriterionIsOrderedByTitle() {
+        // every book matches, so the slices are found walking the books by title
+        final SearchBooksQuery query = new SearchBooksQuery(null, "fantasia", "antunes");
+        final List<String> found = new ArrayList<>();
+        BookSearchCursor after = null;
+        do {
+            final CursorPage<String> slice = bookSearchIndex.searchAny(query, after, 1);
+            found.addAll(slice.getItems());
+            after = slice.getNext() == null ? null : BookSearchCursor.decode(slice.getNext());
+        } while (after != null);
+
+        assertEquals(List.of(INFORMATICA, HOBBIT, SILMARILLION), found);
+    }
+
+    @Test
+    void testUpdatesAreSearchable() {
+        bookSearchIndex.put(HOBBIT, "The Hobbit", "There and back again", null, null);
+        bookSearchIndex.renameAuthor(2L, "Christopher R. Tolkien");
+        bookSearchIndex.remove(INFORMATICA);
+
+        assertEquals(List.of(), bookSearchIndex.searchAll(new SearchBooksQuery("o hobbit", null, null), null).getItems());
+        assertEquals(List.of(HOBBIT), bookSearchIndex.searchAll(new SearchBooksQuery("hobbit", "fantasia", "j. r. r."), null).getItems());
+        assertEquals(List.of(SILMARILLION), bookSearchIndex.searchAll(new SearchBooksQuery(null, null, "christopher r"), null).getItems());
+        assertEquals(List.of(), bookSearchIndex.searchAll(new SearchBooksQuery("informatica", null, null), null).getItems());
+
+        bookSearchIndex.put(INFORMATICA, "Informática", null, "Informação", Map.of(3L, "Manuel Antunes"));
+        assertEquals(List.of(INFORMATICA), bookSearchIndex.searchAll(new SearchBooksQuery(null, null, "antunes"), null).getItems());
+    }
+}
@@ -0,0 +1,111 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.api.BookView;
+import pt.psoft.g1.psoftg1.bookmanagement.api.BookViewMapper;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.shared.services.CountedPage;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest
+class BookServiceImplIntegrationTest {
+    private static final String HOBBIT = "9789720706386";
+    private static final String SILMARILLION = "9789722328296";
+    private static final String CONTOS = "9782826012092";
+
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    @Autowired
+    private BookViewMapper bookViewMapper;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        final Author tolkien = authorRepository.save(new Author("John Ronald Reuel Tolkien", "Autor de O Senhor dos Anéis", "tolkien.png"));
+        final Author christopher = authorRepository.save(new Author("Christopher Tolkien", "Editor da obra do pai", "christopher.png"));
+        final Genre fantasia = genreRepository.save(new Genre("Fantasia"));
+
+        save(new Book(HOBBIT, "O Hobbit", "Uma aventura na Terra Média", fantasia, List.of(tolkien), "hobbit.png"));
+        save(new Book(SILMARILLION, "O Silmarillion", "Os dias antigos da Terra Média", fantasia, List.of(tolkien, christopher), null));
+        save(new Book(CONTOS, "Contos Inacabados", "Histórias da Terra Média", fantasia, List.of(christopher, tolkien), "contos.png"));
+
+        entityManager.flush();
+        entityManager.clear();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        // the books are never committed, so the index is not told they are gone
+        List.of(HOBBIT, SILMARILLION, CONTOS).forEach(bookSearchIndex::remove);
+    }
+
+    @Test
+    void testPageOfCoAuthoredBooksIsLoadedInOneQuery() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            final CountedPage<Book> books = bookService.searchBooks(new Page(1, 2), new SearchBooksQuery(null, "fantasia", "tolkien"));
+            final List<BookView> views = bookViewMapper.toBookView(books.getItems());
+
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(3, books.getTotal());
+            assertEquals(2, views.size());
+            assertEquals(2, views.stream().map(BookView::getIsbn).distinct().count());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void testCoAuthorsAreNotRepeated() {
+        final CountedPage<Book> books = bookService.searchBooks(new Page(1, 10), new SearchBooksQuery("silmarillion", null, null));
+
+        assertEquals(1, books.getTotal());
+        final List<String> authors = bookViewMapper.toBookView(books.getItems()).get(0).getAuthors();
+        assertEquals(2, authors.size());
+        assertTrue(authors.containsAll(List.of("John Ronald Reuel Tolkien", "Christopher Tolkien")));
+    }
+
+    private void save(Book book) {
+        bookRepository.save(book);
+        bookSearchIndex.put(book.getIsbn(), book.getTitle().toString(), book.getDescription(), book.getGenre().getGenre(),
+                book.getAuthors().stream().collect(Collectors.toMap(Author::getAuthorNumber, Author::getName)));
+    }
+}
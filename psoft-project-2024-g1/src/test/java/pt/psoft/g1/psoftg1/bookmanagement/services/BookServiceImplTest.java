@@ -1,27 +1,35 @@
 package pt.psoft.g1.psoftg1.bookmanagement.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.BookLendingLeaderboard;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.CountedPage;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
+import pt.psoft.g1.psoftg1.shared.services.OptimisticLockRetry;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -30,13 +38,21 @@ class BookServiceImplTest {
     @Mock
     private BookRepository bookRepository;
     @Mock
-    private GenreRepository genreRepository;
+    private GenreService genreService;
     @Mock
     private AuthorRepository authorRepository;
     @Mock
     private PhotoRepository photoRepository;
     @Mock
     private ReaderRepository readerRepository;
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+    @Mock
+    private BookCache bookCache;
+    @Mock
+    private BookLendingLeaderboard bookLendingLeaderboard;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private BookServiceImpl bookService;
@@ -50,7 +66,9 @@ class BookServiceImplTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
-        bookService = new BookServiceImpl(bookRepository, genreRepository, authorRepository, photoRepository, readerRepository);
+        bookService = new BookServiceImpl(bookRepository, genreService, authorRepository, photoRepository, readerRepository,
+                new OptimisticLockRetry(new SimpleMeterRegistry()), bookSearchIndex, bookCache, bookLendingLeaderboard,
+                eventPublisher);
     }
 
     @Test
@@ -71,7 +89,7 @@ class BookServiceImplTest {
         when(request.getAuthors()).thenReturn(List.of(VALID_AUTHOR_ID));
         when(authorRepository.findByAuthorNumber(VALID_AUTHOR_ID)).thenReturn(Optional.of(mock(Author.class)));
         when(request.getGenre()).thenReturn(VALID_GENRE_NAME);
-        when(genreRepository.findByString(VALID_GENRE_NAME)).thenReturn(Optional.empty());
+        when(genreService.findByString(VALID_GENRE_NAME)).thenReturn(Optional.empty());
 
         // Act + Assert
         assertThrows(NotFoundException.class, () -> bookService.create(request, VALID_ISBN));
@@ -85,7 +103,7 @@ class BookServiceImplTest {
         Book book = mock(Book.class);
         when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(Optional.of(book));
         when(request.getGenre()).thenReturn(VALID_GENRE_NAME);
-        when(genreRepository.findByString(VALID_GENRE_NAME)).thenReturn(Optional.empty());
+        when(genreService.findByString(VALID_GENRE_NAME)).thenReturn(Optional.empty());
 
         // Act + Assert
         assertThrows(NotFoundException.class, () -> bookService.update(request, "1"));
@@ -114,14 +132,14 @@ class BookServiceImplTest {
 
     @Test
     void findByIsbn_shouldThrowNotFound_whenNotExists() {
-        when(bookRepository.findByIsbn("9999999999999")).thenReturn(Optional.empty());
+        when(bookCache.findByIsbn("9999999999999")).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> bookService.findByIsbn("9999999999999"));
     }
 
     @Test
     void findByIsbn_shouldReturnBook_whenExists() {
         Book book = mock(Book.class);
-        when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(Optional.of(book));
+        when(bookCache.findByIsbn(VALID_ISBN)).thenReturn(Optional.of(book));
         assertEquals(book, bookService.findByIsbn(VALID_ISBN));
     }
 
@@ -135,10 +153,54 @@ class BookServiceImplTest {
         assertThrows(NotFoundException.class, () -> bookService.removeBookPhoto(VALID_ISBN, 1L));
     }
 
+    @Test
+    void findTopBooksLent_shouldKeepRankingOfLeaderboard() {
+        Book hobbit = mock(Book.class);
+        when(hobbit.getIsbn()).thenReturn(VALID_ISBN);
+        Book inspetor = mock(Book.class);
+        when(inspetor.getIsbn()).thenReturn("9782826012092");
+        when(bookLendingLeaderboard.top(eq(3), any(), any())).thenReturn(List.of(
+                Map.entry("9782826012092", 4L), Map.entry("9780000000002", 3L), Map.entry(VALID_ISBN, 2L)));
+        when(bookRepository.findWithDetailsByIsbnIn(List.of("9782826012092", "9780000000002", VALID_ISBN)))
+                .thenReturn(List.of(hobbit, inspetor));
+
+        List<BookCountDTO> top = bookService.findTopBooksLent(3, LendingPeriod.MONTH);
+
+        assertEquals(List.of(new BookCountDTO(inspetor, 4L), new BookCountDTO(hobbit, 2L)), top);
+    }
+
+    @Test
+    void findTopBooksLent_shouldRejectLimitOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> bookService.findTopBooksLent(0, LendingPeriod.YEAR));
+        assertThrows(IllegalArgumentException.class, () -> bookService.findTopBooksLent(101, LendingPeriod.YEAR));
+    }
+
     @Test
     void searchBooks_shouldHandleNullPageAndQuery() {
-        List<Book> books = List.of(mock(Book.class));
-        when(bookRepository.searchBooks(any(Page.class), any(SearchBooksQuery.class))).thenReturn(books);
-        assertEquals(books, bookService.searchBooks(null, null));
+        Book book = mock(Book.class);
+        when(book.getIsbn()).thenReturn(VALID_ISBN);
+        when(bookSearchIndex.searchAll(null, null)).thenReturn(new CountedPage<>(List.of(VALID_ISBN), 11));
+        when(bookRepository.findWithDetailsByIsbnIn(List.of(VALID_ISBN))).thenReturn(List.of(book));
+
+        CountedPage<Book> books = bookService.searchBooks(null, null);
+        assertEquals(List.of(book), books.getItems());
+        assertEquals(11, books.getTotal());
+    }
+
+    @Test
+    void searchAnyBooks_shouldKeepRankingOfIndex() {
+        Book first = mock(Book.class);
+        Book second = mock(Book.class);
+        when(first.getIsbn()).thenReturn("9782826012092");
+        when(second.getIsbn()).thenReturn(VALID_ISBN);
+        SearchBooksQuery query = new SearchBooksQuery(VALID_TITLE, null, null);
+        when(bookSearchIndex.searchAny(query, null, 3))
+                .thenReturn(new CursorPage<>(List.of("9782826012092", VALID_ISBN, "9780000000002"), "next"));
+        when(bookRepository.findWithDetailsByIsbnIn(List.of("9782826012092", VALID_ISBN, "9780000000002"))).thenReturn(List.of(second, first));
+
+        CursorPage<Book> books = bookService.searchAnyBooks(query, null, 3);
+        assertEquals(List.of(first, second), books.getItems());
+        assertEquals("next", books.getNext());
+        assertThrows(IllegalArgumentException.class, () -> bookService.searchAnyBooks(query, null, 101));
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.genremanagement.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest
+class GenreRepositoryIntegrationTest {
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Test
+    void testGenreIsFoundByName() {
+        genreRepository.save(new Genre("Policial"));
+
+        assertEquals("Policial", genreRepository.findByString("Policial").orElseThrow().getGenre());
+        assertTrue(genreRepository.findByString("Poesia").isEmpty());
+    }
+}
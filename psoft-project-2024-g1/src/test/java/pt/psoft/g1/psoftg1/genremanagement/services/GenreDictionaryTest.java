@@ -0,0 +1,56 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GenreDictionaryTest {
+    private final Genre fantasia = new Genre("Fantasia");
+    private final Genre informacao = new Genre("Informação");
+
+    private GenreRepository genreRepository;
+    private GenreDictionary genreDictionary;
+
+    @BeforeEach
+    void setUp() {
+        genreRepository = mock(GenreRepository.class);
+        when(genreRepository.findAll()).thenReturn(List.of(informacao, fantasia));
+        genreDictionary = new GenreDictionary(genreRepository);
+        genreDictionary.load();
+    }
+
+    @Test
+    void testFindByNameIgnoresCase() {
+        assertSame(informacao, genreDictionary.findByName("INFORMAÇÃO").orElseThrow());
+        assertSame(fantasia, genreDictionary.findByName("fantasia").orElseThrow());
+        verify(genreRepository, never()).findByString(anyString());
+    }
+
+    @Test
+    void testRegisteredGenreIsFound() {
+        final Genre romance = new Genre("Romance");
+
+        genreDictionary.register(romance);
+
+        assertSame(romance, genreDictionary.findByName("romance").orElseThrow());
+        assertSame(fantasia, genreDictionary.findByName("Fantasia").orElseThrow());
+        verify(genreRepository, never()).findByString(anyString());
+    }
+
+    @Test
+    void testUnknownNameIsLookedUpInRepository() {
+        final Genre thriller = new Genre("Thriller");
+        when(genreRepository.findByString("Thriller")).thenReturn(Optional.of(thriller));
+
+        assertSame(thriller, genreDictionary.findByName("Thriller").orElseThrow());
+        assertSame(thriller, genreDictionary.findByName("Thriller").orElseThrow());
+        verify(genreRepository, times(2)).findByString("Thriller");
+    }
+}
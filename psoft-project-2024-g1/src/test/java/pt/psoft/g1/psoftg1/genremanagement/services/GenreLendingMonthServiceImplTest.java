@@ -0,0 +1,259 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookGenreChangedEvent;
+import pt.psoft.g1.psoftg1.bookmanagement.services.UpdateBookRequest;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.model.GenreLendingMonth;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreLendingMonthRepository;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingColumnStore;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsCreatedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingsReturnedEvent;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Transactional
+@SpringBootTest
+class GenreLendingMonthServiceImplTest {
+    @Autowired
+    private GenreLendingMonthService genreLendingMonthService;
+    @Autowired
+    private GenreLendingMonthRepository genreLendingMonthRepository;
+    @Autowired
+    private GenreService genreService;
+    @Autowired
+    private LendingColumnStore lendingColumnStore;
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    private ReaderDetails readerDetails;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author("Manuel Antonio Pina",
+                "Manuel António Pina foi um jornalista e escritor português, premiado em 2011 com o Prémio Camões",
+                null);
+        authorRepository.save(author);
+
+        Genre genre = new Genre("Género");
+        genreRepository.save(genre);
+
+        book = new Book("9782826012092",
+                "O Inspetor Max",
+                "conhecido pastor-alemão que trabalha para a Judiciária",
+                genre,
+                List.of(author),
+                null);
+        bookRepository.save(book);
+
+        Reader reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+
+        readerDetails = new ReaderDetails(1,
+                reader,
+                "2000-01-01",
+                "919191919",
+                true,
+                true,
+                true,
+                null,null);
+        readerRepository.save(readerDetails);
+    }
+
+    @AfterTransaction
+    void reloadCommittedLendings() {
+        lendingColumnStore.reload();
+    }
+
+    @Test
+    void testRebuildMatchesLendings() {
+        saveLending(888, LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 11));
+        saveLending(889, LocalDate.of(2019, 3, 20), LocalDate.of(2019, 4, 9));
+        saveLending(890, LocalDate.of(2019, 4, 2), null);
+
+        genreLendingMonthService.rebuild();
+
+        final GenreLendingMonth march = month(YearMonth.of(2019, 3));
+        assertEquals(2, march.getLendings());
+        assertEquals(2, march.getReturnedLendings());
+        assertEquals(15.0, march.getAverageDays(), 0.001);
+        final GenreLendingMonth april = month(YearMonth.of(2019, 4));
+        assertEquals(1, april.getLendings());
+        assertNull(april.getAverageDays());
+
+        final var durations = genreService.getLendingsAverageDurationPerMonth("2019-03-15", "2019-04-15");
+        assertEquals(1, durations.size());
+        assertTrue(durations.get(0).getValues().contains(new GenreLendingsDTO("Género", 15.0)));
+    }
+
+    @Test
+    void testBookGenreChangeMovesItsTotals() {
+        saveLending(888, LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 11));
+        saveLending(889, LocalDate.of(2019, 3, 20), LocalDate.of(2019, 4, 9));
+        saveLending(890, LocalDate.of(2019, 4, 2), null);
+        genreLendingMonthService.rebuild();
+
+        final Genre policial = genreRepository.save(new Genre("Policial"));
+        final UpdateBookRequest request = new UpdateBookRequest();
+        request.setGenreObj(policial);
+        // the book is managed, so the change is flushed with the queries that follow
+        book.applyPatch(book.getVersion(), request);
+        // the totals are moved once the change commits, which the test transaction never reaches
+        genreLendingMonthService.onBookGenreChanged(new BookGenreChangedEvent(book.getIsbn(), "Género", "Policial"));
+
+        assertNull(month(YearMonth.of(2019, 3)));
+        assertNull(month(YearMonth.of(2019, 4)));
+        final GenreLendingMonth march = month("Policial", YearMonth.of(2019, 3));
+        assertEquals(2, march.getLendings());
+        assertEquals(2, march.getReturnedLendings());
+        assertEquals(30, march.getTotalDays());
+        final GenreLendingMonth april = month("Policial", YearMonth.of(2019, 4));
+        assertEquals(1, april.getLendings());
+        assertEquals(0, april.getReturnedLendings());
+
+        // a rebuild counts the lendings in the current genre of their book too
+        final List<String> moved = totals(YearMonth.of(2019, 3), YearMonth.of(2019, 4));
+        genreLendingMonthService.rebuild();
+        assertEquals(moved, totals(YearMonth.of(2019, 3), YearMonth.of(2019, 4)));
+    }
+
+    @Test
+    void testCreateAndReturnUpdateMonth() {
+        final YearMonth now = YearMonth.now();
+        final long before = month(now) == null ? 0 : month(now).getLendings();
+
+        // the totals are updated right before commit, which the test transaction never reaches
+        final Lending lending = lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+        genreLendingMonthService.onLendingsCreated(new LendingsCreatedEvent(List.of(lending)));
+        assertEquals(before + 1, month(now).getLendings());
+        assertEquals(0, month(now).getReturnedLendings());
+
+        final Lending returned = lendingService.setReturned(lending.getLendingNumber(), new SetLendingReturnedRequest(null), lending.getVersion());
+        genreLendingMonthService.onLendingsReturned(new LendingsReturnedEvent(List.of(returned)));
+        assertEquals(1, month(now).getReturnedLendings());
+        assertEquals(0, month(now).getTotalDays());
+    }
+
+    @Test
+    void testConcurrentFirstLendingsOfMonthAreAllCounted() throws Exception {
+        final int threads = 4;
+        final int months = 5;
+        final YearMonth first = YearMonth.of(2001, 1);
+        final List<LendingsCreatedEvent> events = new ArrayList<>();
+        for (int m = 0; m < months; m++) {
+            events.add(new LendingsCreatedEvent(List.of(lending("Concorrente", first.plusMonths(m)))));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CyclicBarrier together = new CyclicBarrier(threads);
+        try {
+            final List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(executor.submit(() -> {
+                    for (LendingsCreatedEvent event : events) {
+                        together.await();
+                        transactionTemplate.executeWithoutResult(status -> genreLendingMonthService.onLendingsCreated(event));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> d : done) {
+                d.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int m = 0; m < months; m++) {
+            assertEquals(threads, month("Concorrente", first.plusMonths(m)).getLendings());
+        }
+    }
+
+    private GenreLendingMonth month(YearMonth month) {
+        return month("Género", month);
+    }
+
+    private GenreLendingMonth month(String genre, YearMonth month) {
+        // the totals are updated in bulk, which does not refresh those already loaded
+        entityManager.flush();
+        entityManager.clear();
+        return genreLendingMonthRepository.findBetween(month, month).stream()
+                .filter(m -> m.getGenre().equals(genre))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<String> totals(YearMonth from, YearMonth to) {
+        entityManager.flush();
+        entityManager.clear();
+        return genreLendingMonthRepository.findBetween(from, to).stream()
+                .map(m -> m.getGenre() + " " + m.getYear() + "-" + m.getMonth() + " " + m.getLendings() + " "
+                        + m.getReturnedLendings() + " " + m.getTotalDays())
+                .toList();
+    }
+
+    private static Lending lending(String genre, YearMonth month) {
+        final Lending lending = mock(Lending.class, RETURNS_DEEP_STUBS);
+        when(lending.getStartDate()).thenReturn(month.atDay(1));
+        when(lending.getBook().getGenre().getGenre()).thenReturn(genre);
+        when(lending.getLimitDate()).thenReturn(null);
+        when(lending.getReturnedDate()).thenReturn(null);
+        return lending;
+    }
+
+    private void saveLending(int seq, LocalDate startDate, LocalDate returnedDate) {
+        lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2019,
+                seq,
+                startDate,
+                returnedDate,
+                15,
+                300));
+    }
+}
@@ -0,0 +1,71 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReaderLendingLedgerTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void ensureReaderNumberNotNull(){
+        assertThrows(IllegalArgumentException.class, () -> new ReaderLendingLedger(null, 0, null));
+    }
+
+    @Test
+    void ensureOutstandingCannotBeNegative(){
+        assertThrows(IllegalArgumentException.class, () -> new ReaderLendingLedger("2024/1", -1, null));
+    }
+
+    @Test
+    void ensureCanLendWithoutOutstandingLendings(){
+        final var ledger = new ReaderLendingLedger("2024/1", 0, null);
+        assertDoesNotThrow(() -> ledger.ensureCanLend(TODAY, 3));
+    }
+
+    @Test
+    void ensureCannotLendWithOverdueLending(){
+        final var ledger = new ReaderLendingLedger("2024/1", 1, TODAY.minusDays(1));
+        assertThrows(LendingForbiddenException.class, () -> ledger.ensureCanLend(TODAY, 3));
+    }
+
+    @Test
+    void ensureCannotLendOverMaximumOutstanding(){
+        final var ledger = new ReaderLendingLedger("2024/1", 0, null);
+        ledger.registerLending(TODAY.plusDays(15));
+        ledger.registerLending(TODAY.plusDays(15));
+        ledger.registerLending(TODAY.plusDays(15));
+        assertEquals(3, ledger.getOutstanding());
+        assertThrows(LendingForbiddenException.class, () -> ledger.ensureCanLend(TODAY, 3));
+    }
+
+    @Test
+    void ensureRegisterLendingKeepsEarliestLimitDate(){
+        final var ledger = new ReaderLendingLedger("2024/1", 0, null);
+        ledger.registerLending(TODAY.plusDays(15));
+        ledger.registerLending(TODAY.plusDays(5));
+        ledger.registerLending(TODAY.plusDays(10));
+        assertEquals(TODAY.plusDays(5), ledger.getEarliestLimitDate());
+    }
+
+    @Test
+    void ensureReturnOfEarliestLendingAsksForRecompute(){
+        final var ledger = new ReaderLendingLedger("2024/1", 0, null);
+        ledger.registerLending(TODAY.plusDays(5));
+        ledger.registerLending(TODAY.plusDays(10));
+        ledger.registerLending(TODAY.plusDays(15));
+        assertFalse(ledger.registerReturn(TODAY.plusDays(10)));
+        assertTrue(ledger.registerReturn(TODAY.plusDays(5)));
+    }
+
+    @Test
+    void ensureLastReturnClearsEarliestLimitDate(){
+        final var ledger = new ReaderLendingLedger("2024/1", 1, TODAY.plusDays(5));
+        assertFalse(ledger.registerReturn(TODAY.plusDays(5)));
+        assertEquals(0, ledger.getOutstanding());
+        assertNull(ledger.getEarliestLimitDate());
+    }
+}
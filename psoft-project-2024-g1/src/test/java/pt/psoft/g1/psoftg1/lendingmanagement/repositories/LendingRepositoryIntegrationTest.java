@@ -13,14 +13,18 @@ import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCursor;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingSummary;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.CursorPage;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -130,6 +134,33 @@ public class LendingRepositoryIntegrationTest {
         assertThat(lendings).contains(lending);
     }
 
+    @Test
+    public void testListSummariesByReaderNumberAndIsbnFiltersReturnedAndPages() {
+        var outstanding = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                LocalDate.now().getYear(),
+                997,
+                LocalDate.of(LocalDate.now().getYear(), 2,1),
+                null,
+                15,
+                300));
+        final String readerNumber = readerDetails.getReaderNumber();
+        final String isbn = book.getIsbn();
+
+        var returned = lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber, isbn, true, new Page(1, 10));
+        assertThat(returned).extracting(LendingSummary::getLendingNumber).containsExactly(lending.getLendingNumber());
+
+        var notReturned = lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber, isbn, false, new Page(1, 10));
+        assertThat(notReturned).extracting(LendingSummary::getLendingNumber).containsExactly(outstanding.getLendingNumber());
+
+        var firstPage = lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber, isbn, null, new Page(1, 1));
+        var secondPage = lendingRepository.listSummariesByReaderNumberAndIsbn(readerNumber, isbn, null, new Page(2, 1));
+        assertThat(firstPage).extracting(LendingSummary::getLendingNumber).containsExactly(lending.getLendingNumber());
+        assertThat(secondPage).extracting(LendingSummary::getLendingNumber).containsExactly(outstanding.getLendingNumber());
+
+        lendingRepository.delete(outstanding);
+    }
+
     @Test
     public void testGetCountFromCurrentYear() {
         int count = lendingRepository.getCountFromCurrentYear();
@@ -227,4 +258,60 @@ public class LendingRepositoryIntegrationTest {
         assertThat(overdueLendings).contains(notReturnedLending);
         assertThat(overdueLendings).doesNotContain(notReturnedAndNotOverdueLending);
     }
+
+    @Test
+    public void testGetOverdueWithCursor() {
+        List<Lending> expected = new ArrayList<>();
+        for (int seq = 990; seq < 995; seq++) {
+            expected.add(lendingRepository.save(Lending.newBootstrappingLending(book,
+                    readerDetails,
+                    2024,
+                    seq,
+                    LocalDate.of(2024, 3,1),
+                    null,
+                    15,
+                    300)));
+        }
+
+        List<String> overdueLendings = new ArrayList<>();
+        CursorPage<LendingSummary> slice = lendingRepository.getOverdue((LendingCursor) null, 2);
+        slice.getItems().forEach(l -> overdueLendings.add(l.getLendingNumber()));
+        while (slice.getNext() != null) {
+            assertThat(slice.getItems()).hasSize(2);
+            slice = lendingRepository.getOverdue(LendingCursor.decode(slice.getNext()), 2);
+            slice.getItems().forEach(l -> overdueLendings.add(l.getLendingNumber()));
+        }
+        assertThat(overdueLendings).containsAll(expected.stream().map(Lending::getLendingNumber).toList());
+        assertThat(overdueLendings).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testSearchLendingsByExactAndPatternValues() {
+        Page page = new Page(1, 10);
+        String readerNumber = readerDetails.getReaderNumber();
+
+        assertThat(lendingRepository.searchLendings(page, readerNumber, "9782826012092", null, null, null))
+                .contains(lending);
+        assertThat(lendingRepository.searchLendings(page, readerNumber.substring(0, 4) + "%", "978%", null, null, null))
+                .contains(lending);
+        assertThat(lendingRepository.searchLendings(page, readerNumber, "978282601209", null, null, null))
+                .doesNotContain(lending);
+    }
+
+    @Test
+    public void testSearchLendingSummariesMatchLendings() {
+        Page page = new Page(1, 10);
+        List<LendingSummary> summaries = lendingRepository.searchLendingSummaries(page,
+                readerDetails.getReaderNumber(), "9782826012092", null, null, null);
+
+        LendingSummary summary = summaries.stream()
+                .filter(l -> l.getLendingNumber().equals(lending.getLendingNumber()))
+                .findFirst().orElseThrow();
+        assertEquals(lending.getTitle(), summary.getBookTitle());
+        assertEquals(readerDetails.getReaderNumber(), summary.getReaderNumber());
+        assertEquals(lending.getLimitDate(), summary.getLimitDate());
+        assertEquals(lending.getReturnedDate(), summary.getReturnedDate());
+        assertEquals(lending.getDaysOverdue().orElse(null), summary.getDaysOverdue());
+        assertEquals(lending.getFineValueInCents().orElse(null), summary.getFineValueInCents());
+    }
 }
@@ -0,0 +1,115 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BookLendingLeaderboardTest {
+    private static final String HOBBIT = "9789720706386";
+    private static final String SILMARILLION = "9789722328296";
+    private static final String CONTOS = "9782826012092";
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private final List<LendingFact> stored = new ArrayList<>();
+    private int lendings;
+    private BookLendingLeaderboard leaderboard;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        final LendingRepository lendingRepository = mock(LendingRepository.class);
+        when(lendingRepository.streamFactsStartedAfter(any())).thenAnswer(inv -> stored.stream());
+        final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        leaderboard = new BookLendingLeaderboard(lendingRepository, transactionTemplate);
+    }
+
+    @Test
+    void testBooksAreRankedByLendingsOfPeriod() {
+        lent(HOBBIT, TODAY.minusMonths(6), 5);
+        lent(SILMARILLION, TODAY.minusDays(10), 3);
+        lent(CONTOS, TODAY, 2);
+        lent(HOBBIT, TODAY.minusDays(1), 1);
+
+        assertEquals(List.of(Map.entry(HOBBIT, 6L), Map.entry(SILMARILLION, 3L), Map.entry(CONTOS, 2L)),
+                leaderboard.top(5, TODAY.minusYears(1), TODAY));
+        assertEquals(List.of(Map.entry(SILMARILLION, 3L), Map.entry(CONTOS, 2L), Map.entry(HOBBIT, 1L)),
+                leaderboard.top(5, TODAY.minusMonths(1), TODAY));
+        assertEquals(List.of(Map.entry(CONTOS, 2L), Map.entry(HOBBIT, 1L)),
+                leaderboard.top(5, TODAY.minusWeeks(1), TODAY));
+    }
+
+    @Test
+    void testOnlyTheRequestedNumberOfBooksIsReturned() {
+        lent(HOBBIT, TODAY, 2);
+        lent(SILMARILLION, TODAY, 3);
+        lent(CONTOS, TODAY, 2);
+
+        assertEquals(List.of(Map.entry(SILMARILLION, 3L), Map.entry(CONTOS, 2L)), leaderboard.top(2, TODAY.minusYears(1), TODAY));
+        assertEquals(List.of(), leaderboard.top(0, TODAY.minusYears(1), TODAY));
+    }
+
+    @Test
+    void testLendingsExpireAsDaysPass() {
+        lent(HOBBIT, TODAY.minusYears(1), 4);
+        lent(HOBBIT, TODAY.minusDays(1), 1);
+        lent(SILMARILLION, TODAY.minusDays(400), 7);
+
+        assertEquals(List.of(Map.entry(HOBBIT, 1L)), leaderboard.top(5, TODAY.minusYears(1), TODAY));
+        assertEquals(List.of(Map.entry(HOBBIT, 5L)), leaderboard.top(5, TODAY.minusYears(1).minusDays(1), TODAY.minusDays(1)));
+
+        final LocalDate nextYear = TODAY.plusYears(1);
+        leaderboard.countAll(List.of(fact(CONTOS, nextYear)));
+        assertEquals(List.of(Map.entry(CONTOS, 1L)), leaderboard.top(5, nextYear.minusYears(1), nextYear));
+    }
+
+    @Test
+    void testLendingsAreCountedOnReload() {
+        stored.add(fact(HOBBIT, TODAY.minusDays(3)));
+        stored.add(fact(HOBBIT, TODAY));
+        leaderboard.reload();
+
+        leaderboard.countAll(List.of(fact(SILMARILLION, TODAY)));
+
+        assertEquals(List.of(Map.entry(HOBBIT, 2L), Map.entry(SILMARILLION, 1L)), leaderboard.top(5, TODAY.minusWeeks(1), TODAY));
+    }
+
+    @Test
+    void testLendingLoadedAndCreatedIsCountedOnce() {
+        final LendingFact created = fact(HOBBIT, TODAY);
+        stored.add(created);
+        leaderboard.reload();
+
+        leaderboard.countAll(List.of(created));
+
+        assertEquals(List.of(Map.entry(HOBBIT, 1L)), leaderboard.top(5, TODAY.minusWeeks(1), TODAY));
+    }
+
+    private void lent(String isbn, LocalDate startDate, int times) {
+        final List<LendingFact> facts = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            facts.add(fact(isbn, startDate));
+        }
+        leaderboard.countAll(facts);
+    }
+
+    private LendingFact fact(String isbn, LocalDate startDate) {
+        lendings++;
+        return new LendingFact(startDate.getYear() + "/" + lendings, startDate, null, "Fantasia", isbn, "2024/1");
+    }
+}
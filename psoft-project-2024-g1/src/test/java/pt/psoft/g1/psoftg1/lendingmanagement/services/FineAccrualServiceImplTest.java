@@ -0,0 +1,183 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.mockito.AdditionalAnswers;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineAccrualSnapshotRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ReaderFineBalanceRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@Transactional
+@SpringBootTest
+class FineAccrualServiceImplTest {
+    @Autowired
+    private FineAccrualService fineAccrualService;
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private FineAccrualRepository fineAccrualRepository;
+    @Autowired
+    private ReaderFineBalanceRepository readerFineBalanceRepository;
+    @Autowired
+    private FineAccrualSnapshotRepository fineAccrualSnapshotRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    private ReaderDetails readerDetails;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author("Manuel Antonio Pina",
+                "Manuel António Pina foi um jornalista e escritor português, premiado em 2011 com o Prémio Camões",
+                null);
+        authorRepository.save(author);
+
+        Genre genre = new Genre("Género");
+        genreRepository.save(genre);
+
+        book = new Book("9782826012092",
+                "O Inspetor Max",
+                "conhecido pastor-alemão que trabalha para a Judiciária",
+                genre,
+                List.of(author),
+                null);
+        bookRepository.save(book);
+
+        Reader reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+
+        readerDetails = new ReaderDetails(1,
+                reader,
+                "2000-01-01",
+                "919191919",
+                true,
+                true,
+                true,
+                null,null);
+        readerRepository.save(readerDetails);
+    }
+
+    @Test
+    void testAccrueSumsOverdueLendings() {
+        var overdue = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                888,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                LocalDate.now().getYear(),
+                889,
+                LocalDate.now(),
+                null,
+                15,
+                300));
+        final long before = fineAccrualService.getSnapshot().getTotalCents();
+        final int expected = overdue.getFineValueInCents().orElseThrow();
+
+        var snapshot = fineAccrualService.accrue();
+
+        assertEquals(LocalDate.now(), snapshot.getAccruedOn());
+        assertEquals(before + expected, snapshot.getTotalCents());
+        assertEquals(expected, fineAccrualService.getReaderBalance(readerDetails.getReaderNumber()).getAccruedCents());
+
+        // running again on the same day changes nothing
+        assertEquals(before + expected, fineAccrualService.accrue().getTotalCents());
+    }
+
+    @Test
+    void testAccrueReleasesReturnedLendings() {
+        var overdue = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                888,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        fineAccrualService.accrue();
+
+        lendingService.setReturned("2024/888", new SetLendingReturnedRequest(null), overdue.getVersion());
+        fineAccrualService.accrue();
+
+        assertEquals(0, fineAccrualService.getReaderBalance(readerDetails.getReaderNumber()).getAccruedCents());
+    }
+
+    @Test
+    void testTotalMatchesBalancesWhenRunFailsHalfway() {
+        for (int seq = 888; seq < 891; seq++) {
+            lendingRepository.save(Lending.newBootstrappingLending(book,
+                    readerDetails,
+                    2024,
+                    seq,
+                    LocalDate.of(2024, 3,1),
+                    null,
+                    15,
+                    300));
+        }
+        // one lending per chunk, the second chunk failing once the first one was applied
+        final AtomicInteger chunks = new AtomicInteger();
+        final LendingRepository failingRepository = mock(LendingRepository.class, AdditionalAnswers.delegatesTo(lendingRepository));
+        doAnswer(inv -> {
+            if (chunks.incrementAndGet() == 2)
+                throw new IllegalStateException("Chunk failed");
+            return lendingRepository.getOverdue(inv.getArgument(0), inv.getArgument(1));
+        }).when(failingRepository).getOverdue(any(), anyInt());
+        final FineAccrualServiceImpl failingService = new FineAccrualServiceImpl(failingRepository, fineAccrualRepository,
+                readerFineBalanceRepository, fineAccrualSnapshotRepository, transactionTemplate);
+        ReflectionTestUtils.setField(failingService, "chunkSize", 1);
+
+        assertThrows(IllegalStateException.class, failingService::accrue);
+
+        final long balances = entityManager.createQuery("SELECT COALESCE(SUM(b.accruedCents), 0) FROM ReaderFineBalance b", Long.class)
+                .getSingleResult();
+        assertTrue(balances > 0);
+        assertEquals(balances, fineAccrualService.getSnapshot().getTotalCents());
+    }
+}
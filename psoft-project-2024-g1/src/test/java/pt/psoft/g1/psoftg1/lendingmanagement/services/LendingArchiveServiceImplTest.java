@@ -0,0 +1,162 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.ArchivedLending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.ArchivedLendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest
+class LendingArchiveServiceImplTest {
+    @Autowired
+    private LendingArchiveService lendingArchiveService;
+    @Autowired
+    private ArchivedLendingRepository archivedLendingRepository;
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private FineRepository fineRepository;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private ReaderDetails readerDetails;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author("Manuel Antonio Pina",
+                "Manuel António Pina foi um jornalista e escritor português, premiado em 2011 com o Prémio Camões",
+                null);
+        authorRepository.save(author);
+
+        Genre genre = new Genre("Género");
+        genreRepository.save(genre);
+
+        book = new Book("9782826012092",
+                "O Inspetor Max",
+                "conhecido pastor-alemão que trabalha para a Judiciária",
+                genre,
+                List.of(author),
+                null);
+        bookRepository.save(book);
+
+        Reader reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+
+        readerDetails = new ReaderDetails(1,
+                reader,
+                "2000-01-01",
+                "919191919",
+                true,
+                true,
+                true,
+                null,null);
+        readerRepository.save(readerDetails);
+    }
+
+    @Test
+    void testArchiveMovesOldReturnedLendings() {
+        final Lending old = saveLending(888, LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31));
+        fineRepository.save(new Fine(old));
+        saveLending(889, LocalDate.now().minusDays(20), LocalDate.now().minusDays(5));
+        saveLending(890, LocalDate.of(2020, 4, 1), null);
+
+        assertTrue(lendingArchiveService.archive() >= 1);
+
+        assertTrue(lendingRepository.findByLendingNumber("2020/888").isEmpty());
+        assertTrue(fineRepository.findByLendingNumber("2020/888").isEmpty());
+        assertTrue(lendingRepository.findByLendingNumber(LocalDate.now().minusDays(20).getYear() + "/889").isPresent());
+        assertTrue(lendingRepository.findByLendingNumber("2020/890").isPresent());
+
+        final ArchivedLending archived = archivedLendingRepository.findByLendingNumber("2020/888").orElseThrow();
+        assertEquals(book.getIsbn(), archived.getIsbn());
+        assertEquals(readerDetails.getReaderNumber(), archived.getReaderNumber());
+        assertEquals(LocalDate.of(2020, 3, 31), archived.getReturnedDate());
+        assertEquals(15 * 300, archived.getFineCentsValue());
+    }
+
+    @Test
+    void testSummariesIncludeArchivedLendings() {
+        saveLending(888, LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 11));
+        final Lending recent = saveLending(889, LocalDate.now().minusDays(20), LocalDate.now().minusDays(5));
+        lendingArchiveService.archive();
+
+        final var readerLendings = lendingRepository.listSummariesByReaderNumberAndIsbn(
+                readerDetails.getReaderNumber(), book.getIsbn(), null, new Page(1, 10));
+        assertEquals(List.of("2020/888", recent.getLendingNumber()),
+                readerLendings.stream().map(LendingSummary::getLendingNumber).toList());
+        assertEquals("O Inspetor Max", readerLendings.get(0).getBookTitle());
+
+        final var searched = lendingRepository.searchLendingSummaries(new Page(1, 10),
+                readerDetails.getReaderNumber(), book.getIsbn(), true, LocalDate.of(2020, 1, 1), null);
+        assertEquals(List.of("2020/888", recent.getLendingNumber()),
+                searched.stream().map(LendingSummary::getLendingNumber).toList());
+
+        // open lendings are never archived, so the archive is not read for them
+        assertTrue(lendingRepository.searchLendingSummaries(new Page(1, 10),
+                readerDetails.getReaderNumber(), book.getIsbn(), false, null, null).isEmpty());
+    }
+
+    @Test
+    void testArchivedLendingCanBeReadButNotReturned() {
+        saveLending(888, LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 11));
+        lendingArchiveService.archive();
+
+        assertTrue(lendingService.findByLendingNumber("2020/888").isEmpty());
+        final LendingSummary archived = lendingService.findArchivedByLendingNumber("2020/888").orElseThrow();
+        assertEquals("O Inspetor Max", archived.getBookTitle());
+        assertEquals(readerDetails.getReaderNumber(), archived.getReaderNumber());
+        assertEquals(LocalDate.of(2020, 3, 11), archived.getReturnedDate());
+
+        assertThrows(ConflictException.class,
+                () -> lendingService.setReturned("2020/888", new SetLendingReturnedRequest(null), 0));
+        assertThrows(NotFoundException.class,
+                () -> lendingService.setReturned("2020/999", new SetLendingReturnedRequest(null), 0));
+    }
+
+    private Lending saveLending(int seq, LocalDate startDate, LocalDate returnedDate) {
+        return lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                startDate.getYear(),
+                seq,
+                startDate,
+                returnedDate,
+                15,
+                300));
+    }
+}
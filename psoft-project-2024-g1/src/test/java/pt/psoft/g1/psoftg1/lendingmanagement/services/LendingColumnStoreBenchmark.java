@@ -0,0 +1,77 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sequential and parallel aggregation of lending totals per month and genre,
+ * over ten years of lendings, on pools of 1, 4 and 16 threads.
+ * <p>
+ * Run with {@code mvn test-compile} and then the {@code main} method, from the IDE or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LendingColumnStoreBenchmark {
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Param({"1", "4", "16"})
+    private int cores;
+
+    @Param({"2000000"})
+    private int lendings;
+
+    private ForkJoinPool pool;
+    private LendingColumnStore store;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(cores);
+        store = new LendingColumnStore(null, null, null, pool);
+
+        final Random random = new Random(42);
+        final int days = (int) (TO.toEpochDay() - FROM.toEpochDay());
+        final List<LendingFact> facts = new ArrayList<>(lendings);
+        for (int i = 0; i < lendings; i++) {
+            final LocalDate startDate = FROM.plusDays(random.nextInt(days));
+            final LocalDate returnedDate = random.nextInt(10) == 0 ? null : startDate.plusDays(1 + random.nextInt(30));
+            facts.add(new LendingFact(String.valueOf(i), startDate, returnedDate,
+                    "Genre " + random.nextInt(20), "ISBN " + random.nextInt(5000), "Reader " + random.nextInt(2000)));
+        }
+        store.putAll(facts);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<LendingTotals> sequential() {
+        return store.totalsPerMonthAndGenre(false);
+    }
+
+    @Benchmark
+    public List<LendingTotals> parallel() {
+        return store.totalsPerMonthAndGenre(true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LendingColumnStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,205 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Transactional
+@SpringBootTest
+class LendingColumnStoreTest {
+    @Autowired
+    private LendingColumnStore lendingColumnStore;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private ReaderDetails readerDetails;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author("Manuel Antonio Pina",
+                "Manuel António Pina foi um jornalista e escritor português, premiado em 2011 com o Prémio Camões",
+                null);
+        authorRepository.save(author);
+
+        Genre genre = new Genre("Género");
+        genreRepository.save(genre);
+
+        book = new Book("9782826012092",
+                "O Inspetor Max",
+                "conhecido pastor-alemão que trabalha para a Judiciária",
+                genre,
+                List.of(author),
+                null);
+        bookRepository.save(book);
+
+        Reader reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+
+        readerDetails = new ReaderDetails(1,
+                reader,
+                "2000-01-01",
+                "919191919",
+                true,
+                true,
+                true,
+                null,null);
+        readerRepository.save(readerDetails);
+    }
+
+    @AfterTransaction
+    void reloadCommittedLendings() {
+        lendingColumnStore.reload();
+    }
+
+    @Test
+    void testStatisticsFollowLendings() {
+        saveLending(888, LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 11));
+        saveLending(889, LocalDate.of(2019, 3, 20), LocalDate.of(2019, 4, 9));
+        saveLending(890, LocalDate.of(2019, 4, 2), null);
+        lendingColumnStore.reload();
+
+        assertEquals(new LendingTotals("Género", YearMonth.of(2019, 3), 2, 2, 30), totals(YearMonth.of(2019, 3)));
+        assertEquals(new LendingTotals("Género", YearMonth.of(2019, 4), 1, 0, 0), totals(YearMonth.of(2019, 4)));
+        assertNull(totals(YearMonth.of(2019, 5)));
+
+        assertEquals(List.of(Map.entry(readerDetails.getReaderNumber(), 3L)),
+                lendingColumnStore.topReadersOfGenre("Género", LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31), 5));
+    }
+
+    @Test
+    void testReturnIsRegisteredOnceCommitted() {
+        // a transaction of its own, as the test transaction never commits
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        final YearMonth month = YearMonth.of(2002, 3);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new LendingsReturnedEvent(List.of(returnedLending("2002/1", month))));
+            status.setRollbackOnly();
+        });
+        assertNull(totals("Devolvida", month));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new LendingsReturnedEvent(List.of(returnedLending("2002/2", month))));
+            assertNull(totals("Devolvida", month));
+        });
+        assertEquals(new LendingTotals("Devolvida", month, 1, 1, 10), totals("Devolvida", month));
+    }
+
+    @Test
+    void testLendingsFollowTheGenreOfTheirBook() {
+        saveLending(888, LocalDate.of(2019, 3, 1), LocalDate.of(2019, 3, 11));
+        lendingColumnStore.reload();
+
+        lendingColumnStore.changeGenre(book.getIsbn(), "Outro Género");
+
+        assertNull(totals(YearMonth.of(2019, 3)));
+        assertEquals(new LendingTotals("Outro Género", YearMonth.of(2019, 3), 1, 1, 10), totals("Outro Género", YearMonth.of(2019, 3)));
+        assertTrue(lendingColumnStore.topReadersOfGenre("Género", LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31), 5).isEmpty());
+        assertEquals(List.of(Map.entry(readerDetails.getReaderNumber(), 1L)),
+                lendingColumnStore.topReadersOfGenre("Outro Género", LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31), 5));
+    }
+
+    @Test
+    void testParallelTotalsMatchSequential() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final LendingColumnStore store = new LendingColumnStore(null, null, null, pool);
+            final List<LendingFact> facts = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                final LocalDate startDate = LocalDate.of(2020, 1, 1).plusDays(i % 1000);
+                facts.add(new LendingFact(String.valueOf(i), startDate, i % 7 == 0 ? null : startDate.plusDays(i % 31),
+                        "Genre " + i % 5, "ISBN " + i % 300, "Reader " + i % 100));
+            }
+            store.putAll(facts);
+
+            final var sequential = store.totalsPerMonthAndGenre(false);
+            assertFalse(sequential.isEmpty());
+            assertEquals(sequential, store.totalsPerMonthAndGenre(true));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testUnknownGenreHasNoTopReaders() {
+        assertTrue(lendingColumnStore.topReadersOfGenre("Unknown genre", LocalDate.of(1900, 1, 1), LocalDate.now(), 5).isEmpty());
+    }
+
+    private LendingTotals totals(YearMonth month) {
+        return totals("Género", month);
+    }
+
+    private LendingTotals totals(String genre, YearMonth month) {
+        return lendingColumnStore.totalsPerMonthAndGenre().stream()
+                .filter(t -> t.getGenre().equals(genre) && t.getMonth().equals(month))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Lending returnedLending(String lendingNumber, YearMonth month) {
+        final Lending lending = mock(Lending.class, RETURNS_DEEP_STUBS);
+        when(lending.getLendingNumber()).thenReturn(lendingNumber);
+        when(lending.getStartDate()).thenReturn(month.atDay(1));
+        when(lending.getReturnedDate()).thenReturn(month.atDay(11));
+        when(lending.getBook().getGenre().getGenre()).thenReturn("Devolvida");
+        when(lending.getBook().getIsbn()).thenReturn("9789720706386");
+        when(lending.getReaderDetails().getReaderNumber()).thenReturn("2002/1");
+        return lending;
+    }
+
+    private Lending saveLending(int seq, LocalDate startDate, LocalDate returnedDate) {
+        return lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2019,
+                seq,
+                startDate,
+                returnedDate,
+                15,
+                300));
+    }
+}
@@ -0,0 +1,22 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LendingCursorTest {
+    @Test
+    void ensureCursorRoundTrips() {
+        final var cursor = LendingCursor.decode(new LendingCursor(LocalDate.of(2024, 3, 1), 42L).encode());
+        assertEquals(LocalDate.of(2024, 3, 1), cursor.getLimitDate());
+        assertEquals(42L, cursor.getPk());
+    }
+
+    @Test
+    void ensureInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LendingCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> LendingCursor.decode("Zm9v"));
+    }
+}
@@ -0,0 +1,171 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingDurationAggregate;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingDurationAggregateRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest
+class LendingDurationServiceImplTest {
+    @Autowired
+    private LendingDurationService lendingDurationService;
+    @Autowired
+    private LendingDurationAggregateRepository lendingDurationAggregateRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private LendingRepository lendingRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private ReaderDetails readerDetails;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author("Manuel Antonio Pina",
+                "Manuel António Pina foi um jornalista e escritor português, premiado em 2011 com o Prémio Camões",
+                null);
+        authorRepository.save(author);
+
+        Genre genre = new Genre("Género");
+        genreRepository.save(genre);
+
+        book = new Book("9782826012092",
+                "O Inspetor Max",
+                "conhecido pastor-alemão que trabalha para a Judiciária",
+                genre,
+                List.of(author),
+                null);
+        bookRepository.save(book);
+
+        Reader reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+
+        readerDetails = new ReaderDetails(1,
+                reader,
+                "2000-01-01",
+                "919191919",
+                true,
+                true,
+                true,
+                null,null);
+        readerRepository.save(readerDetails);
+    }
+
+    @Test
+    void testReconcileMatchesLendings() {
+        saveReturnedLending(888, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 11));
+        saveReturnedLending(889, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 21));
+
+        lendingDurationService.reconcile();
+
+        assertEquals(15.0, lendingDurationService.getAverageDuration(book.getIsbn()), 0.001);
+        assertEquals(lendingRepository.getAverageDuration(), lendingDurationService.getAverageDuration(), 0.001);
+    }
+
+    @Test
+    void testSetReturnedUpdatesAggregates() {
+        saveReturnedLending(888, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 11));
+        var open = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                889,
+                LocalDate.of(2024, 4, 1),
+                null,
+                15,
+                300));
+        lendingDurationService.reconcile();
+
+        final long returnedBefore = lendingDurationAggregateRepository.findByAggregateKey(LendingDurationAggregate.ALL)
+                .orElseThrow().getReturnedLendings();
+
+        lendingService.setReturned("2024/889", new SetLendingReturnedRequest(null), open.getVersion());
+
+        final long days = ChronoUnit.DAYS.between(LocalDate.of(2024, 4, 1), LocalDate.now());
+        // the aggregates are updated in bulk, which does not refresh those already loaded
+        entityManager.flush();
+        entityManager.clear();
+        var aggregate = lendingDurationAggregateRepository.findByAggregateKey(book.getIsbn()).orElseThrow();
+        assertEquals(2, aggregate.getReturnedLendings());
+        assertEquals(10 + days, aggregate.getTotalDays());
+        // the aggregate over all books is only updated right before commit
+        assertEquals(returnedBefore, lendingDurationAggregateRepository.findByAggregateKey(LendingDurationAggregate.ALL)
+                .orElseThrow().getReturnedLendings());
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        entityManager.clear();
+        assertEquals(returnedBefore + 1, lendingDurationAggregateRepository.findByAggregateKey(LendingDurationAggregate.ALL)
+                .orElseThrow().getReturnedLendings());
+        assertEquals(lendingRepository.getAverageDuration(), lendingDurationService.getAverageDuration(), 0.001);
+    }
+
+    @Test
+    void testFirstReturnOfBookCreatesItsAggregate() {
+        var open = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                889,
+                LocalDate.now().minusDays(4),
+                null,
+                15,
+                300));
+
+        lendingService.setReturned("2024/889", new SetLendingReturnedRequest(null), open.getVersion());
+        // the aggregate over all books is only updated right before commit
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        assertEquals(4.0, lendingDurationService.getAverageDuration(book.getIsbn()), 0.001);
+        assertEquals(lendingRepository.getAverageDuration(), lendingDurationService.getAverageDuration(), 0.001);
+    }
+
+    @Test
+    void testAverageDurationWithoutReturnedLendings() {
+        assertNull(lendingDurationService.getAverageDuration("9789720706386"));
+    }
+
+    private void saveReturnedLending(int seq, LocalDate startDate, LocalDate returnedDate) {
+        lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                seq,
+                startDate,
+                returnedDate,
+                15,
+                300));
+    }
+}
@@ -0,0 +1,72 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingNumber;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class LendingNumberAllocatorTest {
+    @Autowired
+    private LendingNumberAllocator lendingNumberAllocator;
+
+    @Test
+    void testNextIsFromCurrentYear() {
+        final LendingNumber ln = lendingNumberAllocator.next();
+        assertThat(ln.toString()).startsWith(LocalDate.now().getYear() + "/");
+    }
+
+    @Test
+    void testNextIsContiguous() {
+        final List<LendingNumber> lns = lendingNumberAllocator.next(120);
+        assertThat(lns).hasSize(120);
+        final int first = sequential(lns.get(0));
+        for (int i = 0; i < lns.size(); i++) {
+            assertThat(sequential(lns.get(i))).isEqualTo(first + i);
+        }
+    }
+
+    @Test
+    void testNextRejectsNonPositiveCount() {
+        assertThrows(IllegalArgumentException.class, () -> lendingNumberAllocator.next(0));
+    }
+
+    @Test
+    void testConcurrentNextNeverRepeats() throws Exception {
+        final Set<String> allocated = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        allocated.add(lendingNumberAllocator.next().toString());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(allocated).hasSize(800);
+    }
+
+    private static int sequential(LendingNumber ln) {
+        final String s = ln.toString();
+        return Integer.parseInt(s.substring(s.indexOf('/') + 1));
+    }
+}
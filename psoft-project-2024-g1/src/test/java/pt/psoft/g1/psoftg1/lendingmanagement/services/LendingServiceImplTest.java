@@ -21,6 +21,7 @@ import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
+import java.io.StringWriter;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -148,6 +149,24 @@ class LendingServiceImplTest {
 
     }
 
+    @Test
+    void testCreateAll() {
+        var request = new CreateLendingsRequest(LocalDate.now().getYear() + "/1",
+                List.of("9782826012092", "9780000000002", "9782826012092", "9782826012092", "9782826012092"));
+        var results = lendingService.createAll(request);
+
+        assertThat(results).hasSize(5);
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Book not found", results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        // only three books can be outstanding
+        assertFalse(results.get(4).isSuccess());
+
+        assertThrows(LendingForbiddenException.class, () -> lendingService.createAll(request));
+    }
+
     @Test
     void testSetReturned() {
         int year = 2024, seq = 888;
@@ -166,6 +185,62 @@ class LendingServiceImplTest {
         assertDoesNotThrow(
                 () -> lendingService.setReturned(year + "/" + seq, request, notReturnedLending.getVersion()));
     }
+
+    @Test
+    void testSetAllReturned() {
+        int year = 2024;
+        var overdueLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                year,
+                888,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        var otherLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                year,
+                889,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        var request = new ReturnLendingsRequest(List.of(
+                new ReturnLendingRequest(year + "/888", overdueLending.getVersion(), null),
+                new ReturnLendingRequest(year + "/889", otherLending.getVersion() - 1, null),
+                new ReturnLendingRequest(year + "/890", 0L, null)));
+
+        var results = lendingService.setAllReturned(request);
+
+        assertThat(results).hasSize(3);
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getLending().getReturnedDate());
+        // stale version is reported, the rest of the batch still goes through
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Lending not found", results.get(2).getError());
+    }
+
+    @Test
+    void testExportLendingsAsCsv() {
+        var writer = new StringWriter();
+        lendingService.exportLendings(new SearchLendingQuery(readerDetails.getReaderNumber(), null, null, null, null),
+                LendingExportFormat.CSV, writer);
+
+        var lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("lendingNumber,isbn,bookTitle"));
+        assertTrue(lines[1].startsWith(LocalDate.now().getYear() + "/999,9782826012092,O Inspetor Max,"));
+    }
+
+    @Test
+    void testExportLendingsAsNdjson() {
+        var writer = new StringWriter();
+        lendingService.exportLendings(null, LendingExportFormat.NDJSON, writer);
+
+        assertThat(writer.toString()).contains("\"lendingNumber\":\"" + LocalDate.now().getYear() + "/999\"");
+        assertThat(writer.toString()).endsWith("\n");
+    }
 /*
     @Test
     void testGetAverageDuration() {
@@ -0,0 +1,208 @@
+package pt.psoft.g1.psoftg1.reportmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportServiceImplTest {
+    @TempDir
+    Path directory;
+
+    private final List<ReportType> generated = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MutableClock clock;
+    private ThreadPoolExecutor executor;
+    private ReportServiceImpl reportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-06-01T10:00:00Z"));
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        reportService = new ReportServiceImpl(executor, this::generate, transactionTemplate, new ObjectMapper(), clock);
+        ReflectionTestUtils.setField(reportService, "maxQueued", 2);
+        ReflectionTestUtils.setField(reportService, "directory", directory.toString());
+        ReflectionTestUtils.setField(reportService, "retentionHours", 24L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testReportIsWrittenToFile() throws Exception {
+        release.countDown();
+        final ReportJob job = reportService.submit(request(ReportType.BOOKS_TOP5, null), "librarian");
+
+        awaitFinished(job);
+
+        assertEquals(ReportStatus.DONE, job.getStatus());
+        final Path file = reportService.getResult(job.getId(), "librarian").getFile().toPath();
+        assertEquals(directory.resolve(job.getId() + ".json"), file);
+        // compared as JSON, as the order of the fields of the generated map is not fixed
+        final ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.readTree("{\"type\":\"BOOKS_TOP5\",\"link\":\"http://localhost/api/books\"}"),
+                objectMapper.readTree(Files.readString(file)));
+        assertThrows(NotFoundException.class, () -> reportService.findById(job.getId(), "another"));
+    }
+
+    @Test
+    void testFailureDoesNotExposeItsCause() throws Exception {
+        release.countDown();
+        final ReportJob job = reportService.submit(request(ReportType.READERS_TOP5, null), "librarian");
+
+        awaitFinished(job);
+
+        assertEquals(ReportStatus.FAILED, job.getStatus());
+        assertEquals("Report generation failed", job.getError());
+    }
+
+    @Test
+    void testHigherPriorityRunsFirst() throws Exception {
+        final ReportJob blocking = reportService.submit(request(ReportType.BOOKS_TOP5, null), "librarian");
+        awaitStatus(blocking, ReportStatus.RUNNING);
+        final ReportJob low = reportService.submit(request(ReportType.AUTHORS_TOP5, ReportPriority.LOW), "librarian");
+        final ReportJob high = reportService.submit(request(ReportType.GENRES_TOP5, ReportPriority.HIGH), "librarian");
+
+        release.countDown();
+        awaitFinished(low);
+        awaitFinished(high);
+
+        assertEquals(List.of(ReportType.BOOKS_TOP5, ReportType.GENRES_TOP5, ReportType.AUTHORS_TOP5), generated);
+    }
+
+    @Test
+    void testCancelledQueuedReportNeverRuns() throws Exception {
+        final ReportJob blocking = reportService.submit(request(ReportType.BOOKS_TOP5, null), "librarian");
+        awaitStatus(blocking, ReportStatus.RUNNING);
+        final ReportJob queued = reportService.submit(request(ReportType.AUTHORS_TOP5, null), "librarian");
+
+        assertEquals(ReportStatus.CANCELLED, reportService.cancel(queued.getId(), "librarian").getStatus());
+        release.countDown();
+        awaitFinished(blocking);
+
+        assertEquals(List.of(ReportType.BOOKS_TOP5), generated);
+        assertEquals(0, executor.getQueue().size());
+        assertThrows(ConflictException.class, () -> reportService.getResult(queued.getId(), "librarian"));
+    }
+
+    @Test
+    void testQueueIsBoundedAndRequestsAreValidated() throws Exception {
+        final ReportJob blocking = reportService.submit(request(ReportType.BOOKS_TOP5, null), "librarian");
+        awaitStatus(blocking, ReportStatus.RUNNING);
+        reportService.submit(request(ReportType.AUTHORS_TOP5, null), "librarian");
+        reportService.submit(request(ReportType.GENRES_TOP5, null), "librarian");
+
+        assertThrows(ResponseStatusException.class,
+                () -> reportService.submit(request(ReportType.READERS_TOP5, null), "librarian"));
+        assertThrows(IllegalArgumentException.class,
+                () -> reportService.submit(request(ReportType.GENRES_LENDINGS_AVERAGE_DURATION_PER_MONTH, null), "librarian"));
+    }
+
+    @Test
+    void testCleanUpRemovesExpiredReports() throws Exception {
+        release.countDown();
+        final ReportJob job = reportService.submit(request(ReportType.BOOKS_TOP5, null), "librarian");
+        awaitFinished(job);
+        final Path orphan = Files.writeString(directory.resolve("orphan.json"), "{}");
+
+        reportService.cleanUp();
+        assertEquals(ReportStatus.DONE, reportService.findById(job.getId(), "librarian").getStatus());
+        assertFalse(Files.exists(orphan));
+
+        clock.advance(Duration.ofHours(25));
+        reportService.cleanUp();
+        assertThrows(NotFoundException.class, () -> reportService.findById(job.getId(), "librarian"));
+        assertFalse(Files.exists(directory.resolve(job.getId() + ".json")));
+    }
+
+    private Object generate(CreateReportRequest request, UriComponents baseUri) {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        generated.add(request.getType());
+        if (request.getType() == ReportType.READERS_TOP5)
+            throw new IllegalStateException("could not read /var/lib/psoft/readers.db");
+        return Map.of("type", request.getType(),
+                "link", UriComponentsBuilder.newInstance().uriComponents(baseUri).path("/api/books").toUriString());
+    }
+
+    private static CreateReportRequest request(ReportType type, ReportPriority priority) {
+        final CreateReportRequest request = new CreateReportRequest();
+        request.setType(type);
+        request.setPriority(priority);
+        return request;
+    }
+
+    private static void awaitFinished(ReportJob job) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!job.getStatus().isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.getStatus().isFinished());
+    }
+
+    private static void awaitStatus(ReportJob job, ReportStatus status) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.getStatus() != status && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, job.getStatus());
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsCacheTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private MutableClock clock;
+    private StatisticsCache statisticsCache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-06-01T10:00:00Z"));
+        statisticsCache = new StatisticsCache(clock);
+        ReflectionTestUtils.setField(statisticsCache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(statisticsCache, "maxEntries", 2);
+    }
+
+    @Test
+    void testAnswerIsReusedForSameParameters() {
+        assertEquals(1, statisticsCache.get("top5", List.of("a"), this::compute));
+        assertEquals(1, statisticsCache.get("top5", List.of("a"), this::compute));
+        assertEquals(2, statisticsCache.get("top5", List.of("b"), this::compute));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testInvalidateAndExpiryComputeAgain() {
+        statisticsCache.get("top5", List.of(), this::compute);
+        statisticsCache.invalidate();
+        assertEquals(2, statisticsCache.get("top5", List.of(), this::compute));
+
+        clock.advance(Duration.ofSeconds(61));
+        assertEquals(3, statisticsCache.get("top5", List.of(), this::compute));
+    }
+
+    @Test
+    void testNextDayComputesAgain() {
+        ReflectionTestUtils.setField(statisticsCache, "ttlSeconds", 86400L);
+        statisticsCache.get("top5", List.of(), this::compute);
+        clock.advance(Duration.ofHours(14));
+
+        assertEquals(2, statisticsCache.get("top5", List.of(), this::compute));
+    }
+
+    @Test
+    void testFailureIsNotKept() {
+        assertThrows(IllegalArgumentException.class, () -> statisticsCache.get("top5", List.of(), () -> {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }));
+        assertEquals(1, statisticsCache.get("top5", List.of(), this::compute));
+    }
+
+    @Test
+    void testConcurrentMissesComputeOnce() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Integer> first = executor.submit(() -> statisticsCache.get("top5", List.of(), () -> {
+                started.countDown();
+                await(release);
+                return compute();
+            }));
+            started.await();
+            final Future<Integer> second = executor.submit(() -> statisticsCache.get("top5", List.of(), this::compute));
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int compute() {
+        return calls.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
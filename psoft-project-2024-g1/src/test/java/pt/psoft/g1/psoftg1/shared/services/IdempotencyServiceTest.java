@@ -0,0 +1,143 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+    private static final String REQUEST = "POST /api/lendings";
+    private static final Map<String, String> BODY = Map.of("isbn", "9782826012092", "readerNumber", "2024/1");
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private MutableClock clock;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-06-01T10:00:00Z"));
+        idempotencyService = new IdempotencyService(new ObjectMapper(), clock);
+        ReflectionTestUtils.setField(idempotencyService, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "maxKeys", 2);
+    }
+
+    @Test
+    void testReplayDoesNotRunActionAgain() {
+        var first = idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+        var replay = idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+
+        assertEquals(1, calls.get());
+        assertEquals(first.getBody(), replay.getBody());
+        assertEquals(201, replay.getStatusCode().value());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    void testRequestsWithoutKeyAlwaysRun() {
+        idempotencyService.execute(null, "user", REQUEST, BODY, this::created);
+        idempotencyService.execute(null, "user", REQUEST, BODY, this::created);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testKeysBelongToTheirOwner() {
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+        idempotencyService.execute("k1", "other user", REQUEST, BODY, this::created);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testKeyReusedForAnotherRequestIsRefused() {
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+
+        final var otherBody = assertThrows(ResponseStatusException.class, () -> idempotencyService.execute("k1", "user",
+                REQUEST, Map.of("isbn", "9789720706386", "readerNumber", "2024/1"), this::created));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, otherBody.getStatusCode());
+        final var otherPath = assertThrows(ResponseStatusException.class,
+                () -> idempotencyService.execute("k1", "user", "PATCH /api/lendings/2024/1", BODY, this::created));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, otherPath.getStatusCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFailedAttemptIsNotStored() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("k1", "user", REQUEST, BODY, () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("timeout");
+        }));
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testExpiredKeyRunsAgain() {
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+        clock.advance(Duration.ofSeconds(61));
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testOldestKeyIsEvictedWhenFull() {
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+        idempotencyService.execute("k2", "user", REQUEST, BODY, this::created);
+        idempotencyService.execute("k3", "user", REQUEST, BODY, this::created);
+        idempotencyService.execute("k1", "user", REQUEST, BODY, this::created);
+
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testTooLongKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("k".repeat(256), "user", REQUEST, BODY, this::created));
+    }
+
+    private ResponseEntity<String> created() {
+        return ResponseEntity.status(201).body("response " + calls.incrementAndGet());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
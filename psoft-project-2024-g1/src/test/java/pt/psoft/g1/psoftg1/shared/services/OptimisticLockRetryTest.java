@@ -0,0 +1,157 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockRetryTest {
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetry = new OptimisticLockRetry(meterRegistry);
+        ReflectionTestUtils.setField(optimisticLockRetry, "enabled", true);
+        ReflectionTestUtils.setField(optimisticLockRetry, "maxAttempts", 3);
+        ReflectionTestUtils.setField(optimisticLockRetry, "backoffMillis", 1L);
+    }
+
+    @Test
+    void testRetriesWhenOtherFieldsChanged() {
+        // another writer changes an unrelated field, and the version, before the first attempt is saved
+        final Row row = new Row(1, "title", "description");
+        final Update update = new Update(row, () -> row.change(row.title, "other description"));
+
+        assertEquals(2L, optimisticLockRetry.execute("row.update", 1, update));
+
+        assertEquals(List.of(1L, 2L), update.attemptedVersions);
+        assertEquals(1.0, meterRegistry.counter("optimistic.lock.retries", "operation", "row.update").count());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        ReflectionTestUtils.setField(optimisticLockRetry, "backoffMillis", 60_000L);
+        final Row row = new Row(1, "title", "description");
+        final Update update = new Update(row, () -> row.change(row.title, "other description"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> optimisticLockRetry.execute("row.update", 1, update));
+    }
+
+    @Test
+    void testGivesUpWhenSameFieldsChanged() {
+        final Row row = new Row(1, "title", "description");
+        final Update update = new Update(row, () -> row.change("other title", row.description));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticLockRetry.execute("row.update", 1, update));
+
+        assertEquals(List.of(1L), update.attemptedVersions);
+        assertEquals(1.0, meterRegistry.counter("optimistic.lock.retry.failures",
+                "operation", "row.update", "reason", "conflicting").count());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        final Row row = new Row(1, "title", "description");
+        final Update update = new Update(row, () -> row.change(row.title, row.description + "!"));
+        update.conflictAlways = true;
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticLockRetry.execute("row.update", 1, update));
+
+        assertEquals(3, update.attemptedVersions.size());
+        assertEquals(1.0, meterRegistry.counter("optimistic.lock.retry.failures",
+                "operation", "row.update", "reason", "exhausted").count());
+    }
+
+    @Test
+    void testStaleClientVersionIsNotRetried() {
+        final Row row = new Row(5, "title", "description");
+        final Update update = new Update(row, () -> {});
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticLockRetry.execute("row.update", 1, update));
+
+        assertEquals(List.of(1L), update.attemptedVersions);
+    }
+
+    @Test
+    void testDisabledAppliesOnce() {
+        ReflectionTestUtils.setField(optimisticLockRetry, "enabled", false);
+        final Row row = new Row(1, "title", "description");
+        final Update update = new Update(row, () -> row.change(row.title, "other description"));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticLockRetry.execute("row.update", 1, update));
+
+        assertEquals(List.of(1L), update.attemptedVersions);
+    }
+
+    private static class Row {
+        long version;
+        String title;
+        String description;
+
+        Row(long version, String title, String description) {
+            this.version = version;
+            this.title = title;
+            this.description = description;
+        }
+
+        void change(String title, String description) {
+            this.title = title;
+            this.description = description;
+            this.version++;
+        }
+    }
+
+    /**
+     * Sets the title of the row, which a concurrent writer changes right before each conflicting attempt is saved.
+     */
+    private static class Update implements RetryableUpdate<Row, Long> {
+        private final Row row;
+        private final Runnable concurrentWrite;
+        private final List<Long> attemptedVersions = new ArrayList<>();
+        private boolean conflictAlways = false;
+
+        Update(Row row, Runnable concurrentWrite) {
+            this.row = row;
+            this.concurrentWrite = concurrentWrite;
+        }
+
+        @Override
+        public Row load() {
+            return new Row(row.version, row.title, row.description);
+        }
+
+        @Override
+        public long versionOf(Row entity) {
+            return entity.version;
+        }
+
+        @Override
+        public Object touchedFields(Row entity) {
+            return entity.title;
+        }
+
+        @Override
+        public Long apply(long version) {
+            attemptedVersions.add(version);
+            if (attemptedVersions.size() == 1 || conflictAlways)
+                concurrentWrite.run();
+            if (row.version != version)
+                throw new ObjectOptimisticLockingFailureException(Row.class, version);
+            row.version++;
+            return version;
+        }
+    }
+}